@@ -0,0 +1,279 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/*
+ * Lock-free double-ended version of IDLList with the same add/append/remove/removeLast/getHead/
+ * getLast API, after Maged Michael's CAS-based deque (SPAA 2003). Head, tail and a status word
+ * live together in one immutable Anchor that is swapped by CAS. A push installs the new end node
+ * with status LPUSH/RPUSH and then links its neighbour to it; any thread that finds an unstable
+ * anchor finishes that link first, so no thread ever waits for another. A fresh Anchor per change
+ * keeps the CAS free of ABA problems.
+ * Unlike IDLList, remove() and removeLast() return null on an empty list instead of throwing.
+ * */
+public class ConcurrentIDLList<E> {
+
+    static class Node<E>{
+        private final E data;
+        volatile Node<E> next;
+        volatile Node<E> prev;
+        Node(E elem){
+            data = elem;
+        }
+    }
+
+    static class Anchor<E>{
+        final Node<E> head;
+        final Node<E> tail;
+        final int status;
+        Anchor(Node<E> head, Node<E> tail, int status){
+            this.head = head;
+            this.tail = tail;
+            this.status = status;
+        }
+    }
+
+    private static final int STABLE = 0;
+    // a new head is installed but its next neighbour does not link back yet
+    private static final int LPUSH = 1;
+    // a new tail is installed but its previous neighbour does not link to it yet
+    private static final int RPUSH = 2;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, Node> PREV =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "prev");
+
+    private final AtomicReference<Anchor<E>> anchor =
+            new AtomicReference<>(new Anchor<E>(null, null, STABLE));
+
+    public boolean add(E elem){
+        if(elem == null){
+            throw new RuntimeException("Add null error");
+        }
+        Node<E> newNode = new Node<>(elem);
+        while(true){
+            Anchor<E> a = anchor.get();
+            if(a.head == null){
+                if(anchor.compareAndSet(a, new Anchor<>(newNode, newNode, STABLE)))
+                    return true;
+            }else if(a.status == STABLE){
+                newNode.next = a.head;
+                Anchor<E> pushed = new Anchor<>(newNode, a.tail, LPUSH);
+                if(anchor.compareAndSet(a, pushed)){
+                    stabilizeHead(pushed);
+                    return true;
+                }
+            }else{
+                stabilize(a);
+            }
+        }
+    }
+
+    public boolean append(E elem){
+        if(elem == null){
+            throw new RuntimeException("Add null error");
+        }
+        Node<E> newNode = new Node<>(elem);
+        while(true){
+            Anchor<E> a = anchor.get();
+            if(a.tail == null){
+                if(anchor.compareAndSet(a, new Anchor<>(newNode, newNode, STABLE)))
+                    return true;
+            }else if(a.status == STABLE){
+                newNode.prev = a.tail;
+                Anchor<E> pushed = new Anchor<>(a.head, newNode, RPUSH);
+                if(anchor.compareAndSet(a, pushed)){
+                    stabilizeTail(pushed);
+                    return true;
+                }
+            }else{
+                stabilize(a);
+            }
+        }
+    }
+
+    public E getHead(){
+        Node<E> head = anchor.get().head;
+        return head == null ? null : head.data;
+    }
+
+    public E getLast(){
+        Node<E> tail = anchor.get().tail;
+        return tail == null ? null : tail.data;
+    }
+
+    public boolean isEmpty(){
+        return anchor.get().head == null;
+    }
+
+    public E remove(){
+        while(true){
+            Anchor<E> a = anchor.get();
+            if(a.head == null)
+                return null;
+            if(a.head == a.tail){
+                if(anchor.compareAndSet(a, new Anchor<E>(null, null, STABLE)))
+                    return a.head.data;
+            }else if(a.status == STABLE){
+                Node<E> next = a.head.next;
+                if(anchor.compareAndSet(a, new Anchor<>(next, a.tail, STABLE))){
+                    // drop the back link so popped nodes do not stay chained to the live list;
+                    // a CAS, because a concurrent push may already have linked next to its new head
+                    PREV.compareAndSet(next, a.head, null);
+                    return a.head.data;
+                }
+            }else{
+                stabilize(a);
+            }
+        }
+    }
+
+    public E removeLast(){
+        while(true){
+            Anchor<E> a = anchor.get();
+            if(a.tail == null)
+                return null;
+            if(a.head == a.tail){
+                if(anchor.compareAndSet(a, new Anchor<E>(null, null, STABLE)))
+                    return a.tail.data;
+            }else if(a.status == STABLE){
+                Node<E> prev = a.tail.prev;
+                if(anchor.compareAndSet(a, new Anchor<>(a.head, prev, STABLE))){
+                    NEXT.compareAndSet(prev, a.tail, null);
+                    return a.tail.data;
+                }
+            }else{
+                stabilize(a);
+            }
+        }
+    }
+
+    private void stabilize(Anchor<E> a){
+        if(a.status == LPUSH){
+            stabilizeHead(a);
+        }else{
+            stabilizeTail(a);
+        }
+    }
+
+    /*
+     * Links the neighbour of a freshly pushed head back to it, then marks the anchor stable.
+     * Gives up as soon as the anchor has moved on: whoever moved it did the work.
+     * */
+    private void stabilizeHead(Anchor<E> a){
+        Node<E> next = a.head.next;
+        if(anchor.get() != a)
+            return;
+        Node<E> nextPrev = next.prev;
+        if(nextPrev != a.head){
+            if(anchor.get() != a)
+                return;
+            if(!PREV.compareAndSet(next, nextPrev, a.head))
+                return;
+        }
+        anchor.compareAndSet(a, new Anchor<>(a.head, a.tail, STABLE));
+    }
+
+    private void stabilizeTail(Anchor<E> a){
+        Node<E> prev = a.tail.prev;
+        if(anchor.get() != a)
+            return;
+        Node<E> prevNext = prev.next;
+        if(prevNext != a.tail){
+            if(anchor.get() != a)
+                return;
+            if(!NEXT.compareAndSet(prev, prevNext, a.tail))
+                return;
+        }
+        anchor.compareAndSet(a, new Anchor<>(a.head, a.tail, STABLE));
+    }
+
+    /*
+     * Stress test: threads push distinct values at random ends and pop from random ends, then
+     * the rest is drained. Every value must come out exactly once.
+     * */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        ConcurrentIDLList<Integer> list = new ConcurrentIDLList<>();
+        AtomicIntegerArray seen = new AtomicIntegerArray(threads * perThread);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for(int t = 0; t < threads; ++t){
+            int base = t * perThread;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try{
+                    start.await();
+                }catch(InterruptedException e){
+                    return;
+                }
+                for(int i = 0; i < perThread; ++i){
+                    if(random.nextBoolean()){
+                        list.add(base + i);
+                    }else{
+                        list.append(base + i);
+                    }
+                    if(random.nextInt(3) != 0){
+                        Integer popped = random.nextBoolean() ? list.remove() : list.removeLast();
+                        if(popped != null){
+                            seen.incrementAndGet(popped);
+                        }
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for(Thread worker : workers){
+            worker.join();
+        }
+        for(Integer popped = list.remove(); popped != null; popped = list.remove()){
+            seen.incrementAndGet(popped);
+        }
+        for(int i = 0; i < seen.length(); ++i){
+            if(seen.get(i) != 1){
+                throw new IllegalStateException("Value " + i + " popped " + seen.get(i) + " times");
+            }
+        }
+        System.out.println(threads + " threads x " + perThread + " values: every value popped once");
+        retentionTest(4, 1000000, true);
+        retentionTest(4, 1000000, false);
+    }
+
+    /*
+     * Runs a long FIFO workload, appending at one end and popping at the other: popped nodes must
+     * become garbage, so the heap retained after each round of pairs has to stay flat.
+     * */
+    private static void retentionTest(int rounds, int pairs, boolean towardsTail){
+        ConcurrentIDLList<Integer> list = new ConcurrentIDLList<>();
+        for(int i = 0; i < 16; ++i){
+            list.append(i);
+        }
+        long baseline = 0;
+        for(int round = 0; round < rounds; ++round){
+            for(int i = 0; i < pairs; ++i){
+                if(towardsTail){
+                    list.append(i);
+                    list.remove();
+                }else{
+                    list.add(i);
+                    list.removeLast();
+                }
+            }
+            long used = IDLListBenchmark.usedHeap();
+            if(round == 0){
+                baseline = used;
+            }else if(used - baseline > 8 << 20){
+                throw new IllegalStateException("Round " + round + " retains " + (used - baseline) + " more bytes than round 0");
+            }
+        }
+        System.out.println(rounds + " rounds x " + pairs + (towardsTail ? " append/remove" : " add/removeLast")
+                + " pairs: retained heap stays flat");
+    }
+}
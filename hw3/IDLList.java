@@ -1,9 +1,22 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.StreamSupport;
 
-public class IDLList<E> {
+public class IDLList<E> implements Iterable<E> {
 
-    class Node<E>{
-        private E data;
+    static class Node<E>{
+        E data;
         Node<E> next;
         Node<E> prev;
         Node(E elem){
@@ -16,16 +29,90 @@ public class IDLList<E> {
         }
     }
 
+    /*
+     * Node of a list with the hash index, which has to find a node's position from the node.
+     * Nodes holding equal values are chained in list order; the map holds the chain head, the
+     * first occurrence, and the head's prevTwin points to the chain tail.
+     * */
+    static class Hashed<E> extends Node<E>{
+        // ring slot, only used while the index is a ring
+        int slot;
+        // treap node, only used while the index is a tree
+        Tree<E> tree;
+        Hashed<E> nextTwin;
+        Hashed<E> prevTwin;
+        Hashed(E elem, Node<E> prev, Node<E> next){
+            super(elem, prev, next);
+        }
+    }
+
+    /*
+     * Node of the implicit treap index, allocated for each list node only while the index is a
+     * tree, so a list that stays in ring mode pays nothing for it.
+     * */
+    static class Tree<E>{
+        final Node<E> node;
+        Tree<E> left;
+        Tree<E> right;
+        Tree<E> parent;
+        int count = 1;
+        final int priority = ThreadLocalRandom.current().nextInt();
+        Tree(Node<E> node){
+            this.node = node;
+        }
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+    /*
+     * Middle edits this close to an end still shift the ring instead of switching to the tree.
+     * */
+    private static final int SHIFT_LIMIT = 32;
+
     private Node<E> head;
     private Node<E> tail;
     private int size;
-    private ArrayList<Node<E>> indices;
+    /*
+     * Positional index: a circular array of the nodes in list order, node i at
+     * indices[(first + i) & (indices.length - 1)]. The length is a power of two.
+     * Adding or removing at either end only moves first, so it never shifts.
+     * */
+    private Node<E>[] indices;
+    private int first;
+    /*
+     * Once a middle edit would shift too much, the index becomes an implicit treap keyed by
+     * subtree counts instead (indices == null), giving O(log n) get, insert and remove anywhere.
+     * After as many end operations as there are nodes it is flattened back into the ring, so
+     * both conversions are paid for by the operations in between.
+     * */
+    private Tree<E> root;
+    private int endOps;
+    // scratch results of split
+    private Tree<E> splitLeft;
+    private Tree<E> splitRight;
+    /*
+     * Optional hash index: every value maps to the first node holding it, the other nodes with
+     * an equal value follow in list order through Hashed.nextTwin. Costs a map entry per
+     * distinct value and the Hashed fields per node; a list without it keeps plain nodes.
+     * */
+    private HashMap<E, Hashed<E>> values;
+    // structural changes so far, checked by iterators and spliterators to fail fast
+    private int modCount;
 
     public IDLList(){
-        indices = new ArrayList();
-        size = indices.size();
+        this(false);
+    }
+
+    /*
+     * With hashIndex set, remove(E) and contains(E) find their node through a hash map in
+     * O(1) expected instead of scanning the list; without it no map is kept.
+     * */
+    public IDLList(boolean hashIndex){
+        indices = newArray(INITIAL_CAPACITY);
+        first = 0;
+        size = 0;
         head = null;
         tail = null;
+        values = hashIndex ? new HashMap<E, Hashed<E>>() : null;
     }
 
     public boolean add(int index, E elem){
@@ -35,28 +122,29 @@ public class IDLList<E> {
         if(index < 0 || index > size){
             throw new IndexOutOfBoundsException("Index : " + index + ", Size : " + size);
         }
-        Node newNode = new Node(elem);
-        int preIndex = index - 1;
-        int nextIndex = index + 1;
-        if(preIndex >= 0){
-            Node previous = indices.get(preIndex);
+        Node<E> next = index == size ? null : node(index);
+        Node<E> previous = next == null ? tail : next.prev;
+        Node<E> newNode = newNode(elem, previous, next);
+        if(previous != null){
             previous.next = newNode;
-            newNode.prev = previous;
+        }else{
+            head = newNode;
         }
-        if(nextIndex <= size - 1){
-            Node next = indices.get(nextIndex);
-            newNode.next = next;
+        if(next != null){
             next.prev = newNode;
+        }else{
+            tail = newNode;
+        }
+        insertIndex(index, newNode);
+        if(values != null){
+            chain((Hashed<E>) newNode, index);
         }
-        indices.add(index, newNode);
-        size = indices.size();
-        head = indices.get(0);
-        tail = indices.get(size - 1);
+        ++modCount;
         return true;
     }
 
     /*
-     * To maintain the ArrayList, this will be O(n), but for LinkedList, it should be O(1)
+     * O(1): links a new head and moves the start of the circular index back by one.
      * */
     public boolean add(E elem){
         return add(0, elem);
@@ -64,23 +152,14 @@ public class IDLList<E> {
 
 
     public boolean append(E elem){
-        if(size == 0)
-            return add(elem);
-        Node newNode = new Node(elem);
-        Node previous = indices.get(size - 1);
-        previous.next = newNode;
-        newNode.prev = previous;
-        indices.add(newNode);
-        size = indices.size();
-        tail = indices.get(size - 1);
-        return true;
+        return add(size, elem);
     }
 
     public E get(int index){
         if(index < 0 || index >= size){
             throw new IndexOutOfBoundsException("Index : " + index + ", Size : " + size);
         }
-        return indices.get(index).data;
+        return node(index).data;
     }
 
     public E getHead(){
@@ -107,40 +186,39 @@ public class IDLList<E> {
         if(index < 0 || index >= size){
             throw new IndexOutOfBoundsException("Index : " + index + ", Size : " + size);
         }
-        int preIndex = index - 1;
-        int nextIndex = index + 1;
-        Node previous = null, next = null;
-        if(preIndex >= 0){
-            previous = indices.get(preIndex);
-        }
-        if(nextIndex <= size - 1){
-            next = indices.get(nextIndex);
-        }
-        if(previous != null){
-            previous.next = next;
-        }
-        if(next != null){
-            next.prev = previous;
+        Node<E> current = node(index);
+        if(current.prev != null){
+            current.prev.next = current.next;
+        }else{
+            head = current.next;
         }
-        E e = indices.remove(index).data;
-        size = indices.size();
-        if(size == 0){
-            head = null;
-            tail = null;
+        if(current.next != null){
+            current.next.prev = current.prev;
         }else{
-            head = indices.get(0);
-            tail = indices.get(size - 1);
+            tail = current.prev;
         }
-        return e;
+        removeIndex(index);
+        if(values != null){
+            unchain((Hashed<E>) current);
+        }
+        ++modCount;
+        return current.data;
     }
 
     public boolean remove(E elem){
         if(elem == null){
             throw new RuntimeException("Remove null error");
         }
-        for(int i = 0; i < size; ++i){
-            E data = indices.get(i).data;
-            if(data.equals(elem)){
+        if(values != null){
+            Hashed<E> firstTwin = values.get(elem);
+            if(firstTwin == null)
+                return false;
+            removeAt(indexOf(firstTwin));
+            return true;
+        }
+        int i = 0;
+        for(Node<E> current = head; current != null; current = current.next, ++i){
+            if(current.data.equals(elem)){
                 removeAt(i);
                 return true;
             }
@@ -148,12 +226,884 @@ public class IDLList<E> {
         return false;
     }
 
+    public boolean contains(E elem){
+        if(values != null){
+            return values.containsKey(elem);
+        }
+        for(Node<E> current = head; current != null; current = current.next){
+            if(current.data.equals(elem))
+                return true;
+        }
+        return false;
+    }
+
+    /*
+     * Inserts the elements of c at index in their iteration order. The new nodes are linked in
+     * one pass and spliced in; the ring is shifted once by c.size(), or in tree mode the new
+     * nodes are built into a treap in O(k) and merged in.
+     * */
+    @SuppressWarnings("unchecked")
+    public boolean addAll(int index, Collection<? extends E> c){
+        if(index < 0 || index > size){
+            throw new IndexOutOfBoundsException("Index : " + index + ", Size : " + size);
+        }
+        Object[] elems = c.toArray();
+        int k = elems.length;
+        for(Object elem : elems){
+            if(elem == null){
+                throw new RuntimeException("Add null error");
+            }
+        }
+        if(k == 0)
+            return false;
+        Node<E>[] fresh = newArray(k);
+        Node<E> next = index == size ? null : node(index);
+        Node<E> previous = next == null ? tail : next.prev;
+        for(int i = 0; i < k; ++i){
+            fresh[i] = newNode((E) elems[i], i == 0 ? previous : fresh[i - 1], null);
+            if(i > 0){
+                fresh[i - 1].next = fresh[i];
+            }
+        }
+        fresh[k - 1].next = next;
+        if(previous != null){
+            previous.next = fresh[0];
+        }else{
+            head = fresh[0];
+        }
+        if(next != null){
+            next.prev = fresh[k - 1];
+        }else{
+            tail = fresh[k - 1];
+        }
+        if(indices != null){
+            insertRing(index, fresh);
+        }else{
+            split(root, index);
+            root = merge(merge(splitLeft, cartesian(fresh, 0, k, -1)), splitRight);
+            root.parent = null;
+            size += k;
+        }
+        if(values != null){
+            for(int i = 0; i < k; ++i){
+                chain((Hashed<E>) fresh[i], index + i);
+            }
+        }
+        ++modCount;
+        return true;
+    }
+
+    /*
+     * Inserts the elements of c before the head, keeping their order.
+     * */
+    public boolean addAll(Collection<? extends E> c){
+        return addAll(0, c);
+    }
+
+    public boolean appendAll(Collection<? extends E> c){
+        return addAll(size, c);
+    }
+
+    /*
+     * Tests every element first, so a throwing filter leaves the list untouched. A second walk
+     * then unlinks the matches and writes the survivors into a fresh ring in the same pass.
+     * */
+    public boolean removeIf(Predicate<? super E> filter){
+        boolean[] doomed = new boolean[size];
+        int removed = 0;
+        int expectedModCount = modCount;
+        int i = 0;
+        for(Node<E> current = head; current != null; current = current.next, ++i){
+            if(filter.test(current.data)){
+                doomed[i] = true;
+                ++removed;
+            }
+        }
+        if(modCount != expectedModCount){
+            throw new ConcurrentModificationException();
+        }
+        if(removed == 0)
+            return false;
+        int capacity = INITIAL_CAPACITY;
+        while(capacity < size - removed){
+            capacity *= 2;
+        }
+        if(indices == null || indices.length != capacity){
+            indices = newArray(capacity);
+        }
+        int kept = 0;
+        i = 0;
+        for(Node<E> current = head; current != null; current = current.next, ++i){
+            if(!doomed[i]){
+                place(kept++, current);
+                continue;
+            }
+            if(current.prev != null){
+                current.prev.next = current.next;
+            }else{
+                head = current.next;
+            }
+            if(current.next != null){
+                current.next.prev = current.prev;
+            }else{
+                tail = current.prev;
+            }
+            if(values != null){
+                unchain((Hashed<E>) current);
+            }
+        }
+        Arrays.fill(indices, kept, capacity, null);
+        first = 0;
+        root = null;
+        endOps = 0;
+        size = kept;
+        ++modCount;
+        return true;
+    }
+
+    public Iterator<E> iterator(){
+        return new Itr(0);
+    }
+
+    public ListIterator<E> listIterator(){
+        return new Itr(0);
+    }
+
+    /*
+     * Iterator positioned before the element at index; the walk itself follows the node links.
+     * */
+    public ListIterator<E> listIterator(int index){
+        if(index < 0 || index > size){
+            throw new IndexOutOfBoundsException("Index : " + index + ", Size : " + size);
+        }
+        return new Itr(index);
+    }
+
+    /*
+     * Ordered, sized spliterator. Splitting halves the remaining range and finds the middle node
+     * through the index, O(1) in ring mode and O(log n) in tree mode, so parallel streams get
+     * balanced work without walking the list.
+     * */
+    public Spliterator<E> spliterator(){
+        return new NodeSpliterator(head, 0, size, modCount);
+    }
+
     public String toString(){
         StringBuilder stringBuilder = new StringBuilder();
-        for(int i = 0; i < size; ++i){
-            E data = indices.get(i).data;
-            stringBuilder.append("Index " + i + ", value: " + data.toString() + "\n");
+        int i = 0;
+        for(Node<E> current = head; current != null; current = current.next, ++i){
+            stringBuilder.append("Index ").append(i).append(", value: ").append(current.data).append('\n');
         }
         return stringBuilder.toString();
     }
+
+    private int indexOf(Hashed<E> node){
+        if(indices != null){
+            return (node.slot - first) & (indices.length - 1);
+        }
+        Tree<E> t = node.tree;
+        int index = count(t.left);
+        for(; t.parent != null; t = t.parent){
+            if(t.parent.right == t){
+                index += count(t.parent.left) + 1;
+            }
+        }
+        return index;
+    }
+
+    private Node<E> newNode(E elem, Node<E> prev, Node<E> next){
+        return values != null ? new Hashed<>(elem, prev, next) : new Node<>(elem, prev, next);
+    }
+
+    private Tree<E> newTree(Node<E> node){
+        Tree<E> tree = new Tree<>(node);
+        if(values != null){
+            ((Hashed<E>) node).tree = tree;
+        }
+        return tree;
+    }
+
+    /*
+     * Links node, now at index, into the chain of its value. Appends and prepends join the chain
+     * at its tail or head directly. A middle insert walks the chain comparing positions and, in
+     * lockstep, the list outward from node looking for its nearest chained twin, so it costs
+     * the shorter of the two walks: few steps for a rare value and for a common one alike.
+     * */
+    private void chain(Hashed<E> node, int index){
+        Hashed<E> firstTwin = values.get(node.data);
+        if(firstTwin == null){
+            node.prevTwin = node;
+            values.put(node.data, node);
+            return;
+        }
+        Hashed<E> lastTwin = firstTwin.prevTwin;
+        if(index == size - 1 || index > indexOf(lastTwin)){
+            lastTwin.nextTwin = node;
+            node.prevTwin = lastTwin;
+            firstTwin.prevTwin = node;
+        }else if(index == 0 || index < indexOf(firstTwin)){
+            node.nextTwin = firstTwin;
+            node.prevTwin = lastTwin;
+            firstTwin.prevTwin = node;
+            values.put(node.data, node);
+        }else{
+            chainBefore(node, nextTwin(node, firstTwin, index));
+        }
+    }
+
+    /*
+     * The chained twin that node has to precede; the chain has twins on both sides of index.
+     * */
+    private Hashed<E> nextTwin(Hashed<E> node, Hashed<E> firstTwin, int index){
+        Hashed<E> after = firstTwin.nextTwin;
+        Node<E> back = node.prev;
+        Node<E> forth = node.next;
+        while(true){
+            if(indexOf(after) > index)
+                return after;
+            after = after.nextTwin;
+            if(back != null){
+                if(back.data.equals(node.data))
+                    return ((Hashed<E>) back).nextTwin;
+                back = back.prev;
+            }
+            if(forth != null){
+                // nodes of a batch still waiting to be chained have no prevTwin
+                if(forth.data.equals(node.data) && ((Hashed<E>) forth).prevTwin != null)
+                    return (Hashed<E>) forth;
+                forth = forth.next;
+            }
+        }
+    }
+
+    private void chainBefore(Hashed<E> node, Hashed<E> after){
+        node.prevTwin = after.prevTwin;
+        node.nextTwin = after;
+        after.prevTwin.nextTwin = node;
+        after.prevTwin = node;
+    }
+
+    /*
+     * O(1): the chain is linked both ways and the map lookup finds its head.
+     * */
+    private void unchain(Hashed<E> node){
+        Hashed<E> firstTwin = values.get(node.data);
+        Hashed<E> next = node.nextTwin;
+        if(node == firstTwin){
+            if(next == null){
+                values.remove(node.data);
+            }else{
+                next.prevTwin = node.prevTwin;
+                values.put(node.data, next);
+            }
+        }else{
+            node.prevTwin.nextTwin = next;
+            if(next != null){
+                next.prevTwin = node.prevTwin;
+            }else{
+                firstTwin.prevTwin = node.prevTwin;
+            }
+        }
+        node.nextTwin = null;
+        node.prevTwin = null;
+    }
+
+    private void place(int slot, Node<E> node){
+        indices[slot] = node;
+        if(values != null){
+            Hashed<E> hashed = (Hashed<E>) node;
+            hashed.slot = slot;
+            // a treap node left from tree mode is stale now
+            hashed.tree = null;
+        }
+    }
+
+    private Node<E> node(int index){
+        if(indices != null){
+            return indices[(first + index) & (indices.length - 1)];
+        }
+        Tree<E> current = root;
+        while(true){
+            int leftCount = count(current.left);
+            if(index < leftCount){
+                current = current.left;
+            }else if(index > leftCount){
+                index -= leftCount + 1;
+                current = current.right;
+            }else{
+                return current.node;
+            }
+        }
+    }
+
+    /*
+     * O(1) at either end; in the middle only the shorter side of the ring is shifted.
+     * */
+    private void insertIndex(int index, Node<E> node){
+        if(!useRing(index, size + 1)){
+            split(root, index);
+            root = merge(merge(splitLeft, newTree(node)), splitRight);
+            root.parent = null;
+            ++size;
+            return;
+        }
+        if(size == indices.length){
+            grow(size + 1);
+        }
+        int mask = indices.length - 1;
+        if(index < size - index){
+            first = (first - 1) & mask;
+            for(int i = 0; i < index; ++i){
+                place((first + i) & mask, indices[(first + i + 1) & mask]);
+            }
+        }else{
+            for(int i = size; i > index; --i){
+                place((first + i) & mask, indices[(first + i - 1) & mask]);
+            }
+        }
+        place((first + index) & mask, node);
+        ++size;
+    }
+
+    private void removeIndex(int index){
+        if(!useRing(index, size)){
+            root = removeNode(root, index);
+            if(root != null){
+                root.parent = null;
+            }
+            --size;
+            if(size == 0){
+                toRing();
+            }
+            return;
+        }
+        int mask = indices.length - 1;
+        if(index < size - 1 - index){
+            for(int i = index; i > 0; --i){
+                place((first + i) & mask, indices[(first + i - 1) & mask]);
+            }
+            indices[first] = null;
+            first = (first + 1) & mask;
+        }else{
+            for(int i = index; i < size - 1; ++i){
+                place((first + i) & mask, indices[(first + i + 1) & mask]);
+            }
+            indices[(first + size - 1) & mask] = null;
+        }
+        --size;
+    }
+
+    /*
+     * Picks the index structure for an edit at index in a list of length n, converting between
+     * ring and tree when the access pattern has changed.
+     * */
+    private boolean useRing(int index, int n){
+        boolean atEnd = index == 0 || index == n - 1;
+        if(indices != null){
+            if(atEnd || Math.min(index, n - 1 - index) <= SHIFT_LIMIT){
+                return true;
+            }
+            toTree();
+            return false;
+        }
+        if(!atEnd){
+            endOps = 0;
+        }else if(++endOps > size){
+            toRing();
+            return true;
+        }
+        return false;
+    }
+
+    private void toTree(){
+        root = cartesian(indices, first, size, indices.length - 1);
+        if(root != null){
+            root.parent = null;
+        }
+        indices = null;
+        endOps = 0;
+    }
+
+    /*
+     * O(n) Cartesian tree build with fresh random priorities over the n nodes
+     * nodes[(start + i) & mask]. The right spine of the tree built so far is followed through
+     * the parent links, so no stack is needed. A mask of -1 reads a plain array.
+     * */
+    private Tree<E> cartesian(Node<E>[] nodes, int start, int n, int mask){
+        Tree<E> top = null;
+        for(int i = 0; i < n; ++i){
+            Tree<E> current = newTree(nodes[(start + i) & mask]);
+            Tree<E> last = null;
+            while(top != null && top.priority < current.priority){
+                last = top;
+                top = top.parent;
+                update(last);
+            }
+            current.left = last;
+            current.parent = top;
+            if(top != null){
+                top.right = current;
+            }
+            top = current;
+        }
+        if(top == null)
+            return null;
+        while(top.parent != null){
+            update(top);
+            top = top.parent;
+        }
+        update(top);
+        return top;
+    }
+
+    /*
+     * Places the k nodes of fresh at index, shifting the shorter side of the ring by k once.
+     * */
+    private void insertRing(int index, Node<E>[] fresh){
+        int k = fresh.length;
+        if(size + k > indices.length){
+            grow(size + k);
+        }
+        int mask = indices.length - 1;
+        if(index < size - index){
+            first = (first - k) & mask;
+            for(int i = 0; i < index; ++i){
+                place((first + i) & mask, indices[(first + i + k) & mask]);
+            }
+        }else{
+            for(int i = size - 1; i >= index; --i){
+                place((first + i + k) & mask, indices[(first + i) & mask]);
+            }
+        }
+        for(int i = 0; i < k; ++i){
+            place((first + index + i) & mask, fresh[i]);
+        }
+        size += k;
+    }
+
+    /*
+     * The list links already hold the nodes in order, so the ring is filled by walking them.
+     * */
+    private void toRing(){
+        int capacity = INITIAL_CAPACITY;
+        while(capacity < size){
+            capacity *= 2;
+        }
+        indices = newArray(capacity);
+        first = 0;
+        root = null;
+        int i = 0;
+        for(Node<E> current = head; current != null; current = current.next){
+            place(i++, current);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Node<E>[] newArray(int length){
+        return (Node<E>[]) new Node[length];
+    }
+
+    private int count(Tree<E> node){
+        return node == null ? 0 : node.count;
+    }
+
+    private void update(Tree<E> node){
+        node.count = count(node.left) + count(node.right) + 1;
+        if(node.left != null){
+            node.left.parent = node;
+        }
+        if(node.right != null){
+            node.right.parent = node;
+        }
+    }
+
+    /*
+     * Splits t into its first k nodes (splitLeft) and the rest (splitRight).
+     * */
+    private void split(Tree<E> t, int k){
+        if(t == null){
+            splitLeft = null;
+            splitRight = null;
+            return;
+        }
+        int leftCount = count(t.left);
+        if(leftCount < k){
+            split(t.right, k - leftCount - 1);
+            t.right = splitLeft;
+            splitLeft = t;
+        }else{
+            split(t.left, k);
+            t.left = splitRight;
+            splitRight = t;
+        }
+        update(t);
+    }
+
+    /*
+     * Concatenates two trees, a before b.
+     * */
+    private Tree<E> merge(Tree<E> a, Tree<E> b){
+        if(a == null)
+            return b;
+        if(b == null)
+            return a;
+        if(a.priority > b.priority){
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private Tree<E> removeNode(Tree<E> t, int index){
+        int leftCount = count(t.left);
+        if(index < leftCount){
+            t.left = removeNode(t.left, index);
+        }else if(index > leftCount){
+            t.right = removeNode(t.right, index - leftCount - 1);
+        }else{
+            return merge(t.left, t.right);
+        }
+        update(t);
+        return t;
+    }
+
+    private void grow(int minCapacity){
+        int capacity = indices.length * 2;
+        while(capacity < minCapacity){
+            capacity *= 2;
+        }
+        Node<E>[] larger = newArray(capacity);
+        Node<E>[] smaller = indices;
+        int mask = smaller.length - 1;
+        indices = larger;
+        for(int i = 0; i < size; ++i){
+            place(i, smaller[(first + i) & mask]);
+        }
+        first = 0;
+    }
+
+    private class Itr implements ListIterator<E> {
+        private Node<E> nextNode;
+        private Node<E> lastReturned;
+        private int nextIndex;
+        private int expectedModCount = modCount;
+
+        Itr(int index){
+            nextNode = index == size ? null : node(index);
+            nextIndex = index;
+        }
+
+        public boolean hasNext(){
+            return nextIndex < size;
+        }
+
+        public E next(){
+            checkForComodification();
+            if(!hasNext()){
+                throw new NoSuchElementException();
+            }
+            lastReturned = nextNode;
+            nextNode = nextNode.next;
+            ++nextIndex;
+            return lastReturned.data;
+        }
+
+        public boolean hasPrevious(){
+            return nextIndex > 0;
+        }
+
+        public E previous(){
+            checkForComodification();
+            if(!hasPrevious()){
+                throw new NoSuchElementException();
+            }
+            nextNode = nextNode == null ? tail : nextNode.prev;
+            lastReturned = nextNode;
+            --nextIndex;
+            return lastReturned.data;
+        }
+
+        public int nextIndex(){
+            return nextIndex;
+        }
+
+        public int previousIndex(){
+            return nextIndex - 1;
+        }
+
+        public void remove(){
+            checkForComodification();
+            if(lastReturned == null){
+                throw new IllegalStateException();
+            }
+            if(nextNode == lastReturned){
+                // last move was previous()
+                nextNode = lastReturned.next;
+                removeAt(nextIndex);
+            }else{
+                removeAt(--nextIndex);
+            }
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        public void set(E elem){
+            checkForComodification();
+            if(lastReturned == null){
+                throw new IllegalStateException();
+            }
+            if(elem == null){
+                throw new RuntimeException("Add null error");
+            }
+            if(values != null){
+                Hashed<E> hashed = (Hashed<E>) lastReturned;
+                unchain(hashed);
+                hashed.data = elem;
+                chain(hashed, indexOf(hashed));
+            }else{
+                lastReturned.data = elem;
+            }
+        }
+
+        public void add(E elem){
+            checkForComodification();
+            IDLList.this.add(nextIndex++, elem);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification(){
+            if(modCount != expectedModCount){
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /*
+     * Covers the nodes at [index, fence), current being the node at index.
+     * */
+    private class NodeSpliterator implements Spliterator<E> {
+        private Node<E> current;
+        private int index;
+        private final int fence;
+        private final int expectedModCount;
+
+        NodeSpliterator(Node<E> current, int index, int fence, int expectedModCount){
+            this.current = current;
+            this.index = index;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        public boolean tryAdvance(Consumer<? super E> action){
+            if(index >= fence)
+                return false;
+            E elem = current.data;
+            current = current.next;
+            ++index;
+            action.accept(elem);
+            if(modCount != expectedModCount){
+                throw new ConcurrentModificationException();
+            }
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super E> action){
+            for(; index < fence; ++index){
+                action.accept(current.data);
+                current = current.next;
+            }
+            if(modCount != expectedModCount){
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        public Spliterator<E> trySplit(){
+            int mid = (index + fence) >>> 1;
+            if(mid <= index)
+                return null;
+            if(modCount != expectedModCount){
+                throw new ConcurrentModificationException();
+            }
+            Spliterator<E> prefix = new NodeSpliterator(current, index, mid, expectedModCount);
+            current = node(mid);
+            index = mid;
+            return prefix;
+        }
+
+        public long estimateSize(){
+            return fence - index;
+        }
+
+        public int characteristics(){
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+        }
+    }
+
+    /*
+     * Randomized differential test against java.util.ArrayList.
+     * */
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 570;
+        differentialTest(new IDLList<Integer>(false), new Random(seed));
+        differentialTest(new IDLList<Integer>(true), new Random(seed));
+        bulkTest(new IDLList<Integer>(false), new Random(seed));
+        bulkTest(new IDLList<Integer>(true), new Random(seed));
+    }
+
+    private static void differentialTest(IDLList<Integer> list, Random random) {
+        ArrayList<Integer> expected = new ArrayList<>();
+        for(int step = 0; step < 200000; ++step){
+            int value = random.nextInt(1000);
+            int op = random.nextInt(10);
+            if(op < 2){
+                list.add(value);
+                expected.add(0, value);
+            }else if(op < 4){
+                list.append(value);
+                expected.add(value);
+            }else if(op < 6){
+                int index = random.nextInt(expected.size() + 1);
+                list.add(index, value);
+                expected.add(index, value);
+            }else if(!expected.isEmpty()){
+                Object actual;
+                Object wanted;
+                if(op == 6){
+                    actual = list.remove();
+                    wanted = expected.remove(0);
+                }else if(op == 7){
+                    actual = list.removeLast();
+                    wanted = expected.remove(expected.size() - 1);
+                }else if(op == 8){
+                    int index = random.nextInt(expected.size());
+                    actual = list.removeAt(index);
+                    wanted = expected.remove(index);
+                }else{
+                    actual = list.remove(Integer.valueOf(value));
+                    wanted = expected.remove(Integer.valueOf(value));
+                }
+                if(!actual.equals(wanted)){
+                    throw new IllegalStateException("Step " + step + ": " + actual + " != " + wanted);
+                }
+            }
+            if(list.contains(value) != expected.contains(value)){
+                throw new IllegalStateException("Step " + step + ": contains(" + value + ")");
+            }
+            if(list.size() != expected.size()){
+                throw new IllegalStateException("Step " + step + ": size " + list.size() + " != " + expected.size());
+            }
+            if(!expected.isEmpty()){
+                int index = random.nextInt(expected.size());
+                if(!list.get(index).equals(expected.get(index))){
+                    throw new IllegalStateException("Step " + step + ": get(" + index + ")");
+                }
+            }
+        }
+        for(int i = 0; i < expected.size(); ++i){
+            if(!list.get(i).equals(expected.get(i))){
+                throw new IllegalStateException("get(" + i + ")");
+            }
+        }
+        System.out.println("IDLList" + (list.values != null ? " with hash index" : "")
+                + " matches ArrayList, final size " + expected.size());
+    }
+
+    /*
+     * Bulk operations, list iterators and spliterators against java.util.ArrayList.
+     * */
+    private static void bulkTest(IDLList<Integer> list, Random random) {
+        ArrayList<Integer> expected = new ArrayList<>();
+        for(int step = 0; step < 20000; ++step){
+            int value = random.nextInt(1000);
+            int op = random.nextInt(8);
+            if(op < 3){
+                ArrayList<Integer> batch = new ArrayList<>();
+                for(int i = random.nextInt(8); i > 0; --i){
+                    batch.add(random.nextInt(1000));
+                }
+                int index = random.nextInt(expected.size() + 1);
+                list.addAll(index, batch);
+                expected.addAll(index, batch);
+            }else if(op == 3){
+                if(list.removeIf(v -> v == value) != expected.removeIf(v -> v == value)){
+                    throw new IllegalStateException("Step " + step + ": removeIf(" + value + ")");
+                }
+            }else if(op < 6){
+                listIteratorStep(list, expected, random);
+            }else if(!expected.isEmpty()){
+                int index = random.nextInt(expected.size());
+                if(!list.removeAt(index).equals(expected.remove(index))){
+                    throw new IllegalStateException("Step " + step + ": removeAt(" + index + ")");
+                }
+            }
+            if(list.size() != expected.size()){
+                throw new IllegalStateException("Step " + step + ": size " + list.size() + " != " + expected.size());
+            }
+            if(list.contains(value) != expected.contains(value)){
+                throw new IllegalStateException("Step " + step + ": contains(" + value + ")");
+            }
+        }
+        int i = 0;
+        for(Integer v : list){
+            if(!v.equals(expected.get(i++))){
+                throw new IllegalStateException("iterator at " + (i - 1));
+            }
+        }
+        long parallelSum = StreamSupport.stream(list.spliterator(), true).mapToLong(Integer::longValue).sum();
+        if(parallelSum != expected.stream().mapToLong(Integer::longValue).sum()){
+            throw new IllegalStateException("parallel stream sum");
+        }
+        Iterator<Integer> failFast = list.iterator();
+        list.append(0);
+        try{
+            failFast.next();
+            throw new IllegalStateException("iterator did not fail fast");
+        }catch(ConcurrentModificationException expectedFailure){
+        }
+        list.removeLast();
+        System.out.println("IDLList" + (list.values != null ? " with hash index" : "")
+                + " bulk operations and iterators match ArrayList, final size " + expected.size());
+    }
+
+    /*
+     * Walks both lists with list iterators from a random index, mixing moves and edits.
+     * */
+    private static void listIteratorStep(IDLList<Integer> list, ArrayList<Integer> expected, Random random) {
+        int start = random.nextInt(expected.size() + 1);
+        ListIterator<Integer> actual = list.listIterator(start);
+        ListIterator<Integer> wanted = expected.listIterator(start);
+        boolean moved = false;
+        for(int move = 0; move < 20; ++move){
+            int op = random.nextInt(5);
+            if(op == 0 && wanted.hasNext()){
+                moved = true;
+                if(!actual.next().equals(wanted.next()))
+                    throw new IllegalStateException("ListIterator.next");
+            }else if(op == 1 && wanted.hasPrevious()){
+                moved = true;
+                if(!actual.previous().equals(wanted.previous()))
+                    throw new IllegalStateException("ListIterator.previous");
+            }else if(op == 2 && moved){
+                actual.remove();
+                wanted.remove();
+                moved = false;
+            }else if(op == 3 && moved){
+                int value = random.nextInt(1000);
+                actual.set(value);
+                wanted.set(value);
+            }else if(op == 4){
+                int value = random.nextInt(1000);
+                actual.add(value);
+                wanted.add(value);
+                moved = false;
+            }
+            if(actual.nextIndex() != wanted.nextIndex() || actual.hasNext() != wanted.hasNext()){
+                throw new IllegalStateException("ListIterator position");
+            }
+        }
+    }
 }
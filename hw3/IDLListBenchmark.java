@@ -0,0 +1,230 @@
+import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/*
+ * Plain timing harness comparing IDLList with its other layouts and java.util.LinkedList.
+ * There is no JMH in this tree, so every case is warmed up for a few rounds and the best
+ * round is reported. Run with a fixed heap, e.g. java -Xms2g -Xmx2g IDLListBenchmark [n].
+ * */
+public class IDLListBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    private static Integer[] values;
+    // keeps the structure being measured reachable
+    private static Object sink;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        values = new Integer[n];
+        for(int i = 0; i < n; ++i){
+            values[i] = i;
+        }
+        Integer missing = -1;
+
+        System.out.println("Layout comparison, n = " + n);
+        report("IDLList append", n, () -> {
+            IDLList<Integer> list = new IDLList<>();
+            for(Integer v : values) list.append(v);
+        });
+        report("UnrolledIDLList append", n, () -> {
+            UnrolledIDLList<Integer> list = new UnrolledIDLList<>();
+            for(Integer v : values) list.append(v);
+        });
+        report("LinkedList append", n, () -> {
+            LinkedList<Integer> list = new LinkedList<>();
+            for(Integer v : values) list.addLast(v);
+        });
+
+        IDLList<Integer> idl = new IDLList<>();
+        UnrolledIDLList<Integer> unrolled = new UnrolledIDLList<>();
+        LinkedList<Integer> linked = new LinkedList<>();
+        for(Integer v : values){
+            idl.append(v);
+            unrolled.append(v);
+            linked.addLast(v);
+        }
+        report("IDLList scan (remove missing)", n, () -> idl.remove(missing));
+        report("UnrolledIDLList scan (remove missing)", n, () -> unrolled.remove(missing));
+        report("LinkedList scan (remove missing)", n, () -> linked.remove(missing));
+
+        report("IDLList add/removeLast", n, () -> {
+            for(Integer v : values){ idl.add(v); idl.removeLast(); }
+        });
+        report("UnrolledIDLList add/removeLast", n, () -> {
+            for(Integer v : values){ unrolled.add(v); unrolled.removeLast(); }
+        });
+        report("LinkedList addFirst/removeLast", n, () -> {
+            for(Integer v : values){ linked.addFirst(v); linked.removeLast(); }
+        });
+
+        System.out.println("Heap per element, values excluded");
+        footprint("IDLList", n, () -> {
+            IDLList<Integer> list = new IDLList<>();
+            for(Integer v : values) list.append(v);
+            return list;
+        });
+        footprint("UnrolledIDLList", n, () -> {
+            UnrolledIDLList<Integer> list = new UnrolledIDLList<>();
+            for(Integer v : values) list.append(v);
+            return list;
+        });
+        footprint("LinkedList", n, () -> {
+            LinkedList<Integer> list = new LinkedList<>();
+            for(Integer v : values) list.addLast(v);
+            return list;
+        });
+
+        System.out.println("Heap per element, boxed values included");
+        footprint("IDLList<Integer>", n, () -> {
+            IDLList<Integer> list = new IDLList<>();
+            for(int i = 0; i < n; ++i) list.append(Integer.valueOf(i));
+            return list;
+        });
+        footprint("IntIDLList", n, () -> {
+            IntIDLList list = new IntIDLList();
+            for(int i = 0; i < n; ++i) list.append(i);
+            return list;
+        });
+        footprint("IDLList<Long>", n, () -> {
+            IDLList<Long> list = new IDLList<>();
+            for(int i = 0; i < n; ++i) list.append(Long.valueOf(i));
+            return list;
+        });
+        footprint("LongIDLList", n, () -> {
+            LongIDLList list = new LongIDLList();
+            for(int i = 0; i < n; ++i) list.append(i);
+            return list;
+        });
+        int[] ints = new int[n];
+        for(int i = 0; i < n; ++i){
+            ints[i] = i;
+        }
+        report("IDLList<Integer> append", n, () -> {
+            IDLList<Integer> list = new IDLList<>();
+            for(int v : ints) list.append(v);
+        });
+        report("IntIDLList append", n, () -> {
+            IntIDLList list = new IntIDLList();
+            for(int v : ints) list.append(v);
+        });
+
+        System.out.println("Deque throughput, 50/50 push/pop at random ends");
+        for(int threads = 1; threads <= 32; threads *= 2){
+            ConcurrentIDLList<Integer> lockFree = new ConcurrentIDLList<>();
+            throughput("ConcurrentIDLList", threads, n, new DequeOps() {
+                public void push(Integer v, boolean atHead){
+                    if(atHead) lockFree.add(v); else lockFree.append(v);
+                }
+                public void pop(boolean atHead){
+                    if(atHead) lockFree.remove(); else lockFree.removeLast();
+                }
+            });
+            IDLList<Integer> locked = new IDLList<>();
+            throughput("synchronized IDLList", threads, n, new DequeOps() {
+                public void push(Integer v, boolean atHead){
+                    synchronized(locked){
+                        if(atHead) locked.add(v); else locked.append(v);
+                    }
+                }
+                public void pop(boolean atHead){
+                    synchronized(locked){
+                        if(locked.size() > 0){
+                            if(atHead) locked.remove(); else locked.removeLast();
+                        }
+                    }
+                }
+            });
+            ConcurrentLinkedDeque<Integer> jdk = new ConcurrentLinkedDeque<>();
+            throughput("ConcurrentLinkedDeque", threads, n, new DequeOps() {
+                public void push(Integer v, boolean atHead){
+                    if(atHead) jdk.addFirst(v); else jdk.addLast(v);
+                }
+                public void pop(boolean atHead){
+                    if(atHead) jdk.pollFirst(); else jdk.pollLast();
+                }
+            });
+        }
+    }
+
+    interface DequeOps {
+        void push(Integer v, boolean atHead);
+        void pop(boolean atHead);
+    }
+
+    /*
+     * Splits n push/pop pairs over the given number of threads and prints the best rate over
+     * ROUNDS runs. The deque is shared across rounds, so it stays small and hot.
+     * */
+    static void throughput(String name, int threads, int n, DequeOps ops) {
+        int perThread = Math.max(1, n / threads);
+        long best = Long.MAX_VALUE;
+        for(int round = 0; round < ROUNDS; ++round){
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            for(int t = 0; t < threads; ++t){
+                workers[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try{
+                        start.await();
+                    }catch(InterruptedException e){
+                        return;
+                    }
+                    for(int i = 0; i < perThread; ++i){
+                        ops.push(values[i], random.nextBoolean());
+                        ops.pop(random.nextBoolean());
+                    }
+                });
+                workers[t].start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for(Thread worker : workers){
+                try{
+                    worker.join();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            best = Math.min(best, System.nanoTime() - begin);
+        }
+        double opsPerSecond = 2.0 * perThread * threads / (best / 1e9);
+        System.out.printf("  %-26s %2d threads %10.2f Mops/s%n", name, threads, opsPerSecond / 1e6);
+    }
+
+    /*
+     * Runs a case ROUNDS times and prints the best time per element.
+     * */
+    static void report(String name, int n, Runnable body) {
+        long best = Long.MAX_VALUE;
+        for(int round = 0; round < ROUNDS; ++round){
+            long start = System.nanoTime();
+            body.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("  %-40s %8.2f ns/element%n", name, (double) best / n);
+    }
+
+    /*
+     * Prints the heap retained by the structure a supplier builds, per element.
+     * */
+    static void footprint(String name, int n, Supplier<Object> build) {
+        long before = usedHeap();
+        sink = build.get();
+        long after = usedHeap();
+        sink = null;
+        System.out.printf("  %-40s %8.2f bytes/element%n", name, (double) (after - before) / n);
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; ++i){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,294 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/*
+ * IDLList specialised for int payloads. Nodes are slots in three parallel arrays (value, next
+ * slot, previous slot), so an element costs 12 bytes instead of a boxed Integer plus a Node.
+ * Removed slots are chained through next into a free list and reused by later adds.
+ * Same API as IDLList; positional operations walk from the nearer end, and getHead/getLast
+ * throw NoSuchElementException on an empty list since there is no null int.
+ * */
+public class IntIDLList {
+
+    private static final int INITIAL_CAPACITY = 16;
+    // end of a chain
+    private static final int NIL = -1;
+
+    private int[] values;
+    private int[] next;
+    private int[] prev;
+    private int head;
+    private int tail;
+    private int size;
+    // head of the removed slots, chained through next; never-used slots start at used
+    private int free;
+    // slots below this have been handed out at least once
+    private int used;
+
+    public IntIDLList(){
+        values = new int[INITIAL_CAPACITY];
+        next = new int[INITIAL_CAPACITY];
+        prev = new int[INITIAL_CAPACITY];
+        head = NIL;
+        tail = NIL;
+        size = 0;
+        free = NIL;
+        used = 0;
+    }
+
+    public boolean add(int index, int elem){
+        if(index < 0 || index > size){
+            throw new IndexOutOfBoundsException("Index : " + index + ", Size : " + size);
+        }
+        int following = index == size ? NIL : slot(index);
+        int previous = following == NIL ? tail : prev[following];
+        int newSlot = allocate();
+        values[newSlot] = elem;
+        prev[newSlot] = previous;
+        next[newSlot] = following;
+        if(previous != NIL){
+            next[previous] = newSlot;
+        }else{
+            head = newSlot;
+        }
+        if(following != NIL){
+            prev[following] = newSlot;
+        }else{
+            tail = newSlot;
+        }
+        ++size;
+        return true;
+    }
+
+    public boolean add(int elem){
+        return add(0, elem);
+    }
+
+    public boolean append(int elem){
+        return add(size, elem);
+    }
+
+    public int get(int index){
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Index : " + index + ", Size : " + size);
+        }
+        return values[slot(index)];
+    }
+
+    public int getHead(){
+        if(head == NIL){
+            throw new NoSuchElementException("Empty list");
+        }
+        return values[head];
+    }
+
+    public int getLast(){
+        if(tail == NIL){
+            throw new NoSuchElementException("Empty list");
+        }
+        return values[tail];
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int remove(){
+        return removeAt(0);
+    }
+
+    public int removeLast(){
+        return removeAt(size - 1);
+    }
+
+    public int removeAt(int index){
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Index : " + index + ", Size : " + size);
+        }
+        return unlink(slot(index));
+    }
+
+    public boolean remove(int elem){
+        for(int current = head; current != NIL; current = next[current]){
+            if(values[current] == elem){
+                unlink(current);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(int elem){
+        for(int current = head; current != NIL; current = next[current]){
+            if(values[current] == elem)
+                return true;
+        }
+        return false;
+    }
+
+    public String toString(){
+        StringBuilder stringBuilder = new StringBuilder();
+        int i = 0;
+        for(int current = head; current != NIL; current = next[current], ++i){
+            stringBuilder.append("Index ").append(i).append(", value: ").append(values[current]).append('\n');
+        }
+        return stringBuilder.toString();
+    }
+
+    /*
+     * Slot of the node at index, walking from the nearer end.
+     * */
+    private int slot(int index){
+        int current;
+        if(index < size / 2){
+            current = head;
+            for(int i = 0; i < index; ++i){
+                current = next[current];
+            }
+        }else{
+            current = tail;
+            for(int i = size - 1; i > index; --i){
+                current = prev[current];
+            }
+        }
+        return current;
+    }
+
+    private int allocate(){
+        if(free != NIL){
+            int reused = free;
+            free = next[reused];
+            return reused;
+        }
+        if(used == values.length){
+            int capacity = values.length * 2;
+            values = Arrays.copyOf(values, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+        }
+        return used++;
+    }
+
+    private int unlink(int current){
+        if(prev[current] != NIL){
+            next[prev[current]] = next[current];
+        }else{
+            head = next[current];
+        }
+        if(next[current] != NIL){
+            prev[next[current]] = prev[current];
+        }else{
+            tail = prev[current];
+        }
+        next[current] = free;
+        free = current;
+        --size;
+        return values[current];
+    }
+
+    /*
+     * Randomized differential test against java.util.ArrayList. Removes are frequent enough that
+     * freed slots are reused, which keeps the highest slot handed out at the largest size
+     * reached; every thousand steps the links and the free list are checked to cover every slot.
+     * */
+    public static void main(String[] args) {
+        Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 570);
+        IntIDLList list = new IntIDLList();
+        ArrayList<Integer> expected = new ArrayList<>();
+        int largest = 0;
+        for(int step = 0; step < 50000; ++step){
+            int value = random.nextInt(1000);
+            int op = random.nextInt(10);
+            if(op < 2){
+                list.add(value);
+                expected.add(0, value);
+            }else if(op < 4){
+                list.append(value);
+                expected.add(value);
+            }else if(op < 6){
+                int index = random.nextInt(expected.size() + 1);
+                list.add(index, value);
+                expected.add(index, value);
+            }else if(!expected.isEmpty()){
+                if(op == 9){
+                    if(list.remove(value) != expected.remove(Integer.valueOf(value))){
+                        throw new IllegalStateException("Step " + step + ": remove(" + value + ")");
+                    }
+                }else{
+                    int actual;
+                    int wanted;
+                    if(op == 6){
+                        actual = list.remove();
+                        wanted = expected.remove(0);
+                    }else if(op == 7){
+                        actual = list.removeLast();
+                        wanted = expected.remove(expected.size() - 1);
+                    }else{
+                        int index = random.nextInt(expected.size());
+                        actual = list.removeAt(index);
+                        wanted = expected.remove(index);
+                    }
+                    if(actual != wanted){
+                        throw new IllegalStateException("Step " + step + ": " + actual + " != " + wanted);
+                    }
+                }
+            }
+            if(list.contains(value) != expected.contains(value) || list.size() != expected.size()){
+                throw new IllegalStateException("Step " + step + ": contains(" + value + ")");
+            }
+            if(!expected.isEmpty()){
+                int index = random.nextInt(expected.size());
+                if(list.get(index) != expected.get(index) || list.getHead() != expected.get(0)
+                        || list.getLast() != expected.get(expected.size() - 1)){
+                    throw new IllegalStateException("Step " + step + ": get(" + index + ")");
+                }
+            }
+            largest = Math.max(largest, expected.size());
+            if(list.used > largest){
+                throw new IllegalStateException("Step " + step + ": " + list.used + " slots for " + largest + " elements");
+            }
+            if(step % 1000 == 0){
+                list.check();
+            }
+        }
+        for(int i = 0; i < expected.size(); ++i){
+            if(list.get(i) != expected.get(i)){
+                throw new IllegalStateException("get(" + i + ")");
+            }
+        }
+        list.check();
+        System.out.println("IntIDLList matches ArrayList, largest size " + largest + ", " + list.used + " slots used");
+    }
+
+    /*
+     * Checks the links both ways and that the list and the free list together hold every slot
+     * handed out exactly once.
+     * */
+    private void check(){
+        boolean[] seen = new boolean[used];
+        int count = 0;
+        int previous = NIL;
+        for(int current = head; current != NIL; previous = current, current = next[current]){
+            if(prev[current] != previous || seen[current]){
+                throw new IllegalStateException("Broken link at slot " + current);
+            }
+            seen[current] = true;
+            ++count;
+        }
+        if(previous != tail || count != size){
+            throw new IllegalStateException("List holds " + count + " nodes, size is " + size);
+        }
+        for(int current = free; current != NIL; current = next[current]){
+            if(seen[current]){
+                throw new IllegalStateException("Free slot " + current + " is also in use");
+            }
+            seen[current] = true;
+            ++count;
+        }
+        if(count != used){
+            throw new IllegalStateException(count + " slots accounted for, " + used + " handed out");
+        }
+    }
+}
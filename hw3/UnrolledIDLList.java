@@ -0,0 +1,322 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * Unrolled layout of IDLList: every node holds a small array of elements, so a list of n
+ * elements needs about n / CHUNK nodes and sequential scans read contiguous arrays instead of
+ * chasing one pointer per element. Same API as IDLList; get(int) walks chunks from the nearer
+ * end, so positional access is O(n / CHUNK).
+ * */
+public class UnrolledIDLList<E> {
+
+    class Chunk{
+        private Object[] items = new Object[CHUNK];
+        private int count;
+        Chunk next;
+        Chunk prev;
+    }
+
+    private static final int CHUNK = 64;
+
+    private Chunk head;
+    private Chunk tail;
+    private int size;
+
+    // scratch results of locate
+    private Chunk found;
+    private int offset;
+
+    public UnrolledIDLList(){
+        head = null;
+        tail = null;
+        size = 0;
+    }
+
+    public boolean add(int index, E elem){
+        if(elem == null){
+            throw new RuntimeException("Add null error");
+        }
+        if(index < 0 || index > size){
+            throw new IndexOutOfBoundsException("Index : " + index + ", Size : " + size);
+        }
+        if(head == null){
+            head = tail = new Chunk();
+        }
+        if(index == size){
+            if(tail.count == CHUNK){
+                linkAfter(tail, new Chunk());
+            }
+            tail.items[tail.count++] = elem;
+        }else if(index == 0 && head.count == CHUNK){
+            linkBefore(head, new Chunk());
+            head.items[head.count++] = elem;
+        }else{
+            locate(index);
+            Chunk chunk = found;
+            int at = offset;
+            if(chunk.count == CHUNK){
+                // move the upper half into a new chunk
+                Chunk upper = new Chunk();
+                int half = CHUNK / 2;
+                System.arraycopy(chunk.items, half, upper.items, 0, CHUNK - half);
+                Arrays.fill(chunk.items, half, CHUNK, null);
+                upper.count = CHUNK - half;
+                chunk.count = half;
+                linkAfter(chunk, upper);
+                if(at > half){
+                    chunk = upper;
+                    at -= half;
+                }
+            }
+            System.arraycopy(chunk.items, at, chunk.items, at + 1, chunk.count - at);
+            chunk.items[at] = elem;
+            ++chunk.count;
+        }
+        ++size;
+        return true;
+    }
+
+    public boolean add(E elem){
+        return add(0, elem);
+    }
+
+    public boolean append(E elem){
+        return add(size, elem);
+    }
+
+    public E get(int index){
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Index : " + index + ", Size : " + size);
+        }
+        locate(index);
+        return item(found, offset);
+    }
+
+    public E getHead(){
+        return head == null ? null : item(head, 0);
+    }
+
+    public E getLast(){
+        return tail == null ? null : item(tail, tail.count - 1);
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public E remove(){
+        return removeAt(0);
+    }
+
+    public E removeLast(){
+        return removeAt(size - 1);
+    }
+
+    public E removeAt(int index){
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Index : " + index + ", Size : " + size);
+        }
+        locate(index);
+        return removeFrom(found, offset);
+    }
+
+    public boolean remove(E elem){
+        if(elem == null){
+            throw new RuntimeException("Remove null error");
+        }
+        for(Chunk chunk = head; chunk != null; chunk = chunk.next){
+            Object[] items = chunk.items;
+            for(int i = 0; i < chunk.count; ++i){
+                if(items[i].equals(elem)){
+                    removeFrom(chunk, i);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public String toString(){
+        StringBuilder stringBuilder = new StringBuilder();
+        int index = 0;
+        for(Chunk chunk = head; chunk != null; chunk = chunk.next){
+            for(int i = 0; i < chunk.count; ++i, ++index){
+                stringBuilder.append("Index ").append(index).append(", value: ").append(chunk.items[i]).append('\n');
+            }
+        }
+        return stringBuilder.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private E item(Chunk chunk, int i){
+        return (E) chunk.items[i];
+    }
+
+    /*
+     * Sets found and offset to the chunk and slot of index, walking from the nearer end.
+     * */
+    private void locate(int index){
+        if(index < size / 2){
+            Chunk chunk = head;
+            while(index >= chunk.count){
+                index -= chunk.count;
+                chunk = chunk.next;
+            }
+            found = chunk;
+            offset = index;
+        }else{
+            Chunk chunk = tail;
+            int back = size - 1 - index;
+            while(back >= chunk.count){
+                back -= chunk.count;
+                chunk = chunk.prev;
+            }
+            found = chunk;
+            offset = chunk.count - 1 - back;
+        }
+    }
+
+    private E removeFrom(Chunk chunk, int i){
+        E e = item(chunk, i);
+        System.arraycopy(chunk.items, i + 1, chunk.items, i, chunk.count - i - 1);
+        chunk.items[--chunk.count] = null;
+        --size;
+        if(chunk.count == 0){
+            unlink(chunk);
+        }else if(chunk.next != null && chunk.count + chunk.next.count <= CHUNK / 2){
+            // keep chunks at least a quarter full by absorbing a small neighbour
+            Chunk next = chunk.next;
+            System.arraycopy(next.items, 0, chunk.items, chunk.count, next.count);
+            chunk.count += next.count;
+            unlink(next);
+        }
+        return e;
+    }
+
+    private void linkAfter(Chunk chunk, Chunk newChunk){
+        newChunk.prev = chunk;
+        newChunk.next = chunk.next;
+        if(chunk.next != null){
+            chunk.next.prev = newChunk;
+        }else{
+            tail = newChunk;
+        }
+        chunk.next = newChunk;
+    }
+
+    private void linkBefore(Chunk chunk, Chunk newChunk){
+        newChunk.next = chunk;
+        newChunk.prev = chunk.prev;
+        if(chunk.prev != null){
+            chunk.prev.next = newChunk;
+        }else{
+            head = newChunk;
+        }
+        chunk.prev = newChunk;
+    }
+
+    private void unlink(Chunk chunk){
+        if(chunk.prev != null){
+            chunk.prev.next = chunk.next;
+        }else{
+            head = chunk.next;
+        }
+        if(chunk.next != null){
+            chunk.next.prev = chunk.prev;
+        }else{
+            tail = chunk.prev;
+        }
+    }
+
+    /*
+     * Randomized differential test against java.util.ArrayList. Adds outweigh removes in the
+     * first half and removes win in the second, so chunks are split while the list grows and
+     * merged while it shrinks; the chunk links and counts are checked as it goes.
+     * */
+    public static void main(String[] args) {
+        Random random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 570);
+        UnrolledIDLList<Integer> list = new UnrolledIDLList<>();
+        ArrayList<Integer> expected = new ArrayList<>();
+        int steps = 200000;
+        for(int step = 0; step < steps; ++step){
+            int value = random.nextInt(1000);
+            int op = random.nextInt(step < steps / 2 ? 10 : 14);
+            if(op >= 10){
+                op -= 4;
+            }
+            if(op < 2){
+                list.add(value);
+                expected.add(0, value);
+            }else if(op < 4){
+                list.append(value);
+                expected.add(value);
+            }else if(op < 6){
+                int index = random.nextInt(expected.size() + 1);
+                list.add(index, value);
+                expected.add(index, value);
+            }else if(!expected.isEmpty()){
+                Object actual;
+                Object wanted;
+                if(op == 6){
+                    actual = list.remove();
+                    wanted = expected.remove(0);
+                }else if(op == 7){
+                    actual = list.removeLast();
+                    wanted = expected.remove(expected.size() - 1);
+                }else if(op == 8){
+                    int index = random.nextInt(expected.size());
+                    actual = list.removeAt(index);
+                    wanted = expected.remove(index);
+                }else{
+                    actual = list.remove(Integer.valueOf(value));
+                    wanted = expected.remove(Integer.valueOf(value));
+                }
+                if(!actual.equals(wanted)){
+                    throw new IllegalStateException("Step " + step + ": " + actual + " != " + wanted);
+                }
+            }
+            if(list.size() != expected.size()){
+                throw new IllegalStateException("Step " + step + ": size " + list.size() + " != " + expected.size());
+            }
+            if(!expected.isEmpty()){
+                int index = random.nextInt(expected.size());
+                if(!list.get(index).equals(expected.get(index))
+                        || !list.getHead().equals(expected.get(0))
+                        || !list.getLast().equals(expected.get(expected.size() - 1))){
+                    throw new IllegalStateException("Step " + step + ": get(" + index + ")");
+                }
+            }else if(list.getHead() != null || list.getLast() != null){
+                throw new IllegalStateException("Step " + step + ": ends of an empty list");
+            }
+            if(step % 1000 == 0){
+                list.check();
+            }
+        }
+        for(int i = 0; i < expected.size(); ++i){
+            if(!list.get(i).equals(expected.get(i))){
+                throw new IllegalStateException("get(" + i + ")");
+            }
+        }
+        list.check();
+        System.out.println("UnrolledIDLList matches ArrayList, final size " + expected.size());
+    }
+
+    /*
+     * Checks the chunk links both ways, that no chunk is empty and that the counts add up to size.
+     * */
+    private void check(){
+        int total = 0;
+        Chunk previous = null;
+        for(Chunk chunk = head; chunk != null; chunk = chunk.next){
+            if(chunk.prev != previous || chunk.count <= 0 || chunk.count > CHUNK){
+                throw new IllegalStateException("Broken chunk after " + total + " elements");
+            }
+            total += chunk.count;
+            previous = chunk;
+        }
+        if(previous != tail || total != size){
+            throw new IllegalStateException("Chunks hold " + total + " elements, size is " + size);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package Maze;
+
+/**
+ * A listener told when a single cell of a grid changes state.
+ */
+public interface GridListener {
+
+    /**
+     * Called after the cell at (x, y) changed state
+     * @param x - The column number
+     * @param y - The row number */
+    void cellChanged(int x, int y);
+}
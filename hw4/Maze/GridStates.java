@@ -0,0 +1,17 @@
+package Maze;
+
+/**
+ *  An interface for the cell states of a headless maze grid.
+ *  Each state mirrors one of the colors in GridColors.
+ */
+public interface GridStates {
+
+    /** An open cell, drawn in GridColors.BACKGROUND */
+    int OPEN = 0;
+    /** A barrier cell, drawn in GridColors.NON_BACKGROUND */
+    int BLOCKED = 1;
+    /** A cell on the solution path, drawn in GridColors.PATH */
+    int ON_PATH = 2;
+    /** A visited cell not on the path, drawn in GridColors.TEMPORARY */
+    int VISITED = 3;
+}
@@ -0,0 +1,79 @@
+package Maze;
+
+import java.util.Arrays;
+
+/**
+ * A binary min heap of (key, value) pairs held in parallel primitive
+ * arrays, so pushing and popping allocate nothing once the arrays
+ * have grown.
+ */
+class IntMinHeap {
+
+    /** Initial capacity of the heap */
+    private static final int INITIAL_CAPACITY = 64;
+    /** The keys of the pairs */
+    private long[] keys = new long[INITIAL_CAPACITY];
+    /** The values of the pairs */
+    private int[] values = new int[INITIAL_CAPACITY];
+    /** Number of pairs in the heap */
+    private int size;
+
+    /** Removes every pair. */
+    void clear() {
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds a pair
+     * @param key - The priority, smaller comes first
+     * @param value - The value carried with it */
+    void push(long key, int value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /** Value of the smallest pair */
+    int topValue() {
+        return values[0];
+    }
+
+    /** Removes the smallest pair. */
+    void pop() {
+        long key = keys[--size];
+        int value = values[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                ++child;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            keys[i] = keys[child];
+            values[i] = values[child];
+            i = child;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+}
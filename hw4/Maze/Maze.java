@@ -6,12 +6,49 @@ import java.util.*;
  * Class that solves maze problems with backtracking.
  * @author Koffman and Wolfgang
  **/
-public class Maze implements GridColors {
+public class Maze implements GridStates {
+
+    /** Number of neighbours of a cell */
+    private static final int DIRECTIONS = 4;
 
     /** The maze */
-    private TwoDimGrid maze;
+    private MazeGrid maze;
+    /** Queue of cell indices reused between searches */
+    private int[] queue;
+    /** Parent cell index of every reached cell */
+    private int[] trace;
+    /** Cell indices on the current depth first search path */
+    private int[] stack;
+    /** Next direction to try for every cell on the stack */
+    private byte[] dirs;
+    /** Epoch in which every cell was last reached */
+    private int[] seen;
+    /** Epoch of the current search */
+    private int epoch;
+    /** Distance from the start of every reached cell */
+    private int[] dist;
+    /** Epoch in which every cell was expanded by aStar */
+    private int[] closed;
+    /** Epoch in which every cell was reached from the goal side */
+    private int[] seenBack;
+    /** Parent cell index towards the goal of every cell reached from it */
+    private int[] traceBack;
+    /** Distance to the goal of every cell reached from it */
+    private int[] distBack;
+    /** Queue of the goal side of bidirectionalBfs */
+    private int[] queueBack;
+    /** Cell where the two sides of bidirectionalBfs met, or -1 */
+    private int meetCell;
+    /** Jump point of the horizontal run right of every cell, epoch in the high half */
+    private long[] rowJumpRight;
+    /** Jump point of the horizontal run left of every cell, epoch in the high half */
+    private long[] rowJumpLeft;
+    /** Open list of aStar */
+    private IntMinHeap open;
+    /** Number of cells expanded by the last search */
+    private long expandedNodes;
 
-    public Maze(TwoDimGrid m) {
+    public Maze(MazeGrid m) {
         maze = m;
     }
 
@@ -22,11 +59,11 @@ public class Maze implements GridColors {
 
     /**
      * Attempts to find a path through point (x, y).
-     * @pre Possible path cells are in BACKGROUND color;
-     *      barrier cells are in ABNORMAL color.
+     * @pre Possible path cells are in the OPEN state;
+     *      barrier cells are in the BLOCKED state.
      * @post If a path is found, all cells on it are set to the
-     *       PATH color; all cells that were visited but are
-     *       not on the path are in the TEMPORARY color.
+     *       ON_PATH state; all cells that were visited but are
+     *       not on the path are in the VISITED state.
      * @param x The x-coordinate of current point
      * @param y The y-coordinate of current point
      * @return If a path through (x, y) is found, true;
@@ -34,38 +71,38 @@ public class Maze implements GridColors {
      */
     public boolean findMazePath(int x, int y) {
         //1. 如果节点是不能访问， 返回假
-        if(!maze.getColor(x,y).equals(BACKGROUND))
+        if(maze.getState(x, y) != OPEN)
             return false;
 
         //到达出口节点， 并且因为1, 节点是可以访问的
         if(x == maze.getNCols() - 1 && y == maze.getNRows() - 1){
-            maze.recolor(x, y, PATH);
+            maze.setState(x, y, ON_PATH);
             return true;
         }
 
         //设置当前节点为访问
-        maze.recolor(x, y, TEMPORARY);
+        maze.setState(x, y, VISITED);
         //判断右节点， 如果找到了就返回。
         if(x + 1 < maze.getNCols() && findMazePath(x + 1, y)){
-            maze.recolor(x, y, PATH);
+            maze.setState(x, y, ON_PATH);
             return true;
         }
         //判断下节点
         if(y + 1 < maze.getNRows() && findMazePath(x, y + 1)){
-            maze.recolor(x, y, PATH);
+            maze.setState(x, y, ON_PATH);
             return true;
         }
         //判断左节点
         if(x - 1 >= 0 && findMazePath(x - 1, y)){
-            maze.recolor(x, y, PATH);
+            maze.setState(x, y, ON_PATH);
             return true;
         }
         //判断上节点
         if(y - 1 >= 0 && findMazePath(x, y - 1)){
-            maze.recolor(x, y, PATH);
+            maze.setState(x, y, ON_PATH);
             return true;
         }
-        maze.recolor(x, y, BACKGROUND);
+        maze.setState(x, y, OPEN);
         //上下左右没有找到适合的， 返回假
     	return false;
     }
@@ -79,7 +116,7 @@ public class Maze implements GridColors {
     }
 
     public void findMazePathBased(int x, int y, ArrayList<ArrayList<PairInt>> result, ArrayList<PairInt> trace){
-        if(!maze.getColor(x,y).equals(BACKGROUND))
+        if(maze.getState(x, y) != OPEN)
             return;
         if(x == maze.getNCols() - 1 && y == maze.getNRows() - 1){
             trace.add(new PairInt(x, y));
@@ -89,7 +126,7 @@ public class Maze implements GridColors {
         }
         PairInt pairInt = new PairInt(x, y);
         trace.add(pairInt);
-        maze.recolor(x, y, TEMPORARY);
+        maze.setState(x, y, VISITED);
         if(x + 1 < maze.getNCols()){
             findMazePathBased(x + 1, y, result, trace);
         }
@@ -106,77 +143,813 @@ public class Maze implements GridColors {
             findMazePathBased(x, y - 1, result, trace);
         }
 
-        maze.recolor(x, y, BACKGROUND);
+        maze.setState(x, y, OPEN);
         trace.remove(trace.size() - 1);
     }
 
+    /**
+     * Iterative version of findMazePath(x, y). The search path is kept
+     * in an int stack sized to the grid instead of on the thread stack,
+     * so long corridors cannot overflow it. Neighbours are tried in the
+     * same order as findMazePath: right, down, left, up.
+     * @pre Possible path cells are in the OPEN state;
+     *      barrier cells are in the BLOCKED state.
+     * @post If a path is found, all cells on it are set to the
+     *       ON_PATH state; all cells that were visited but are
+     *       not on the path are in the VISITED state.
+     * @param x The x-coordinate of the start point
+     * @param y The y-coordinate of the start point
+     * @return If a path from (x, y) is found, true;
+     *         otherwise, false
+     */
+    public boolean findMazePathIterative(int x, int y){
+        int col = maze.getNCols();
+        int n = col * maze.getNRows();
+        int goal = n - 1;
+        if(maze.getState(x, y) != OPEN)
+            return false;
+        int start = y * col + x;
+        if(start == goal){
+            maze.setState(goal, ON_PATH);
+            return true;
+        }
+        ensureStack(n);
+        int top = 0;
+        stack[0] = start;
+        dirs[0] = 0;
+        maze.setState(start, VISITED);
+        while(top >= 0){
+            int dir = dirs[top];
+            if(dir == DIRECTIONS){
+                //dead end, it stays VISITED
+                --top;
+                continue;
+            }
+            dirs[top] = (byte) (dir + 1);
+            int next = neighbor(stack[top], dir, col, n);
+            if(next < 0 || maze.getState(next) != OPEN)
+                continue;
+            if(next == goal){
+                maze.setState(goal, ON_PATH);
+                for(; top >= 0; --top){
+                    maze.setState(stack[top], ON_PATH);
+                }
+                return true;
+            }
+            maze.setState(next, VISITED);
+            stack[++top] = next;
+            dirs[top] = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Iterative version of findAllMazePaths(x, y) that backtracks on
+     * an int stack sized to the grid.
+     * @param x The x-coordinate of the start point
+     * @param y The y-coordinate of the start point
+     * @return Every simple path from (x, y) to the bottom right corner
+     */
+    public ArrayList<ArrayList<PairInt>> findAllMazePathsIterative(int x, int y){
+        return findAllMazePaths(x, y, Long.MAX_VALUE);
+    }
+
+    /**
+     * Finds at most limit of the simple paths from (x, y) to the bottom
+     * right corner, stopping the search once it has them.
+     * @param x The x-coordinate of the start point
+     * @param y The y-coordinate of the start point
+     * @param limit The maximum number of paths to return
+     * @return The first limit paths in search order
+     */
+    public ArrayList<ArrayList<PairInt>> findAllMazePaths(int x, int y, long limit){
+        final ArrayList<ArrayList<PairInt>> result = new ArrayList<>();
+        forEachMazePath(x, y, limit, new PathVisitor() {
+            public boolean visit(int[] cells, int length) {
+                result.add(toPairList(cells, length));
+                return true;
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Counts the simple paths from (x, y) to the bottom right corner
+     * without allocating anything per path.
+     * @param x The x-coordinate of the start point
+     * @param y The y-coordinate of the start point
+     * @return The number of paths
+     */
+    public long countMazePaths(int x, int y){
+        return forEachMazePath(x, y, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Streams the simple paths from (x, y) to the bottom right corner
+     * to a visitor as they are found. Every path is handed over in the
+     * one reused search stack, so nothing is allocated per path. The
+     * grid is left as it was, also when the search stops early.
+     * @param x The x-coordinate of the start point
+     * @param y The y-coordinate of the start point
+     * @param limit The maximum number of paths to visit
+     * @param visitor Receives every path; may be null to only count them
+     * @return The number of paths visited
+     */
+    public long forEachMazePath(int x, int y, long limit, PathVisitor visitor){
+        int col = maze.getNCols();
+        int n = col * maze.getNRows();
+        int goal = n - 1;
+        if(limit <= 0 || maze.getState(x, y) != OPEN)
+            return 0;
+        int start = y * col + x;
+        ensureStack(n);
+        if(start == goal){
+            stack[0] = goal;
+            if(visitor != null){
+                visitor.visit(stack, 1);
+            }
+            return 1;
+        }
+        long count = 0;
+        int top = 0;
+        stack[0] = start;
+        dirs[0] = 0;
+        maze.setState(start, VISITED);
+        while(top >= 0){
+            int dir = dirs[top];
+            if(dir == DIRECTIONS){
+                maze.setState(stack[top--], OPEN);
+                continue;
+            }
+            dirs[top] = (byte) (dir + 1);
+            int next = neighbor(stack[top], dir, col, n);
+            if(next < 0 || maze.getState(next) != OPEN)
+                continue;
+            if(next == goal){
+                ++count;
+                stack[top + 1] = goal;
+                boolean more = visitor == null || visitor.visit(stack, top + 2);
+                if(!more || count == limit){
+                    for(; top >= 0; --top){
+                        maze.setState(stack[top], OPEN);
+                    }
+                    break;
+                }
+                continue;
+            }
+            maze.setState(next, VISITED);
+            stack[++top] = next;
+            dirs[top] = 0;
+        }
+        return count;
+    }
+
+    /**
+     * Neighbour of a cell in a given direction.
+     * @param cell The cell index
+     * @param dir 0 right, 1 down, 2 left, 3 up
+     * @param col Number of columns
+     * @param n Number of cells
+     * @return The neighbour's cell index, or -1 if it is off the grid
+     */
+    static int neighbor(int cell, int dir, int col, int n){
+        switch(dir){
+            case 0:
+                return cell % col + 1 < col ? cell + 1 : -1;
+            case 1:
+                return cell + col < n ? cell + col : -1;
+            case 2:
+                return cell % col > 0 ? cell - 1 : -1;
+            default:
+                return cell - col >= 0 ? cell - col : -1;
+        }
+    }
+
     // ADD METHOD FOR PROBLEM 3 HERE
     public ArrayList<PairInt> findMazePathMin(int x, int y){
-        return bfs();
+        return toPairList(bfsCells(cellOf(x, y)));
     }
     public ArrayList<PairInt> bfs(){
+        return toPairList(bfsCells());
+    }
+
+    /**
+     * Breadth first search from (0, 0) to the bottom right corner.
+     * @return The cell indices of a shortest path, or an empty array
+     *         if there is none
+     */
+    public int[] bfsCells(){
+        return bfsCells(0);
+    }
+
+    /**
+     * Breadth first search from a start cell to the bottom right corner
+     * that works on cell indices (y * nCols + x). The queue and the parent
+     * array are kept between calls, so a search allocates nothing but
+     * the returned path. Reached cells are set to VISITED.
+     * @param start The cell index of the start point
+     * @return The cell indices of a shortest path, or an empty array
+     *         if there is none
+     */
+    public int[] bfsCells(int start){
+        int goal = maze.getNCols() * maze.getNRows() - 1;
+        if(maze.getState(start) != OPEN)
+            return new int[0];
+        return search(start, goal, true);
+    }
+
+    /**
+     * Shortest path between two arbitrary points. The grid is not
+     * changed, so any number of queries can be run on the same maze
+     * without restore(); every cell that is not BLOCKED is passable.
+     * @param startX The x-coordinate of the start point
+     * @param startY The y-coordinate of the start point
+     * @param goalX The x-coordinate of the goal point
+     * @param goalY The y-coordinate of the goal point
+     * @return The cells of a shortest path, or an empty list if there is none
+     * @throws IllegalArgumentException if a point lies outside the grid
+     */
+    public ArrayList<PairInt> shortestPath(int startX, int startY, int goalX, int goalY){
+        return toPairList(shortestPathCells(cellOf(startX, startY), cellOf(goalX, goalY)));
+    }
+
+    /**
+     * Cell index of a point, checked against the grid bounds so a bad
+     * x cannot wrap around into the next row.
+     * @throws IllegalArgumentException if (x, y) lies outside the grid
+     */
+    private int cellOf(int x, int y){
         int col = maze.getNCols();
-        int row = maze.getNRows();
-        int[] trace = new int[row * col];
-        Arrays.fill(trace, -1);
-        trace[0] = 0;
-        Queue<PairInt> queue = new LinkedList<PairInt>();
-        if(!maze.getColor(0,0).equals(BACKGROUND)){
-            return new ArrayList<PairInt>();
-        }
-        queue.offer(new PairInt(0,0));
-        maze.recolor(0,0, TEMPORARY);
-        while(!queue.isEmpty()){
-            PairInt pairInt = queue.poll();
-            int x = pairInt.getX();
-            int y = pairInt.getY();
-            PairInt left = new PairInt(x - 1, y);
-            if(isValidPair(left) &&
-                    maze.getColor(x - 1, y).equals(BACKGROUND)){
-                maze.recolor(x - 1, y, TEMPORARY);
-                trace[y * col + x - 1] = y * col + x;
-                queue.offer(left);
-            }
-
-            PairInt right = new PairInt(x + 1, y);
-            if(isValidPair(right) &&
-                    maze.getColor(x + 1, y).equals(BACKGROUND)){
-                maze.recolor(x + 1, y, TEMPORARY);
-                trace[y * col + x + 1] = y * col + x;
-                queue.offer(right);
-            }
-
-            PairInt up = new PairInt(x, y - 1);
-            if(isValidPair(up) &&
-                    maze.getColor(x, y - 1).equals(BACKGROUND)){
-                maze.recolor(x, y - 1, TEMPORARY);
-                trace[(y - 1) * col + x] = y * col + x;
-                queue.offer(up);
-            }
-
-            PairInt down = new PairInt(x, y + 1);
-            if(isValidPair(down) &&
-                    maze.getColor(x, y + 1).equals(BACKGROUND)){
-                maze.recolor(x, y + 1, TEMPORARY);
-                trace[(y + 1) * col + x] = y * col + x;
-                queue.offer(down);
-            }
-        }
-        return getShortesList(trace);
-    }
-
-    private ArrayList<PairInt> getShortesList(int[] trace) {
-        LinkedList<PairInt> res = new LinkedList<PairInt>();
-        int tmp = maze.getNRows() * maze.getNCols() - 1;
-        if(trace[tmp] == -1) return new ArrayList<PairInt>(res);
-        while(tmp != 0){
-            int x = tmp % maze.getNCols();
-            int y = tmp / maze.getNCols();
-            res.addFirst(new PairInt(x, y));
-            tmp = trace[tmp];
-        }
-        res.addFirst(new PairInt(0, 0));
-        return new ArrayList<PairInt>(res);
+        if(x < 0 || x >= col || y < 0 || y >= maze.getNRows()){
+            throw new IllegalArgumentException("Point (" + x + ", " + y + ") is outside the grid");
+        }
+        return y * col + x;
+    }
+
+    /**
+     * Cell index version of shortestPath. Visited cells are stamped with
+     * a per-query epoch in a reused array, so a query costs only the
+     * cells it reaches and needs no clearing pass.
+     * @param start The cell index of the start point
+     * @param goal The cell index of the goal point
+     * @return The cell indices of a shortest path, or an empty array
+     *         if there is none
+     */
+    public int[] shortestPathCells(int start, int goal){
+        if(maze.getState(start) == BLOCKED || maze.getState(goal) == BLOCKED)
+            return new int[0];
+        return search(start, goal, false);
+    }
+
+    /**
+     * Breadth first search on cell indices.
+     * @param start The cell index of the start point, already checked
+     * @param goal The cell index of the goal point
+     * @param mark If true only OPEN cells are passable and they are set
+     *        to VISITED; otherwise every cell but BLOCKED is passable and
+     *        the grid is left alone
+     * @return The cell indices of a shortest path, or an empty array
+     */
+    private int[] search(int start, int goal, boolean mark){
+        int col = maze.getNCols();
+        int n = col * maze.getNRows();
+        ensureCapacity(n);
+        int stamp = nextEpoch();
+        seen[start] = stamp;
+        trace[start] = start;
+        if(mark){
+            maze.setState(start, VISITED);
+        }
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        expandedNodes = 0;
+        while(head != tail && seen[goal] != stamp){
+            int cell = queue[head++];
+            ++expandedNodes;
+            int x = cell % col;
+            if(x - 1 >= 0){
+                tail = offer(cell - 1, cell, stamp, mark, tail);
+            }
+            if(x + 1 < col){
+                tail = offer(cell + 1, cell, stamp, mark, tail);
+            }
+            if(cell - col >= 0){
+                tail = offer(cell - col, cell, stamp, mark, tail);
+            }
+            if(cell + col < n){
+                tail = offer(cell + col, cell, stamp, mark, tail);
+            }
+        }
+        if(seen[goal] != stamp)
+            return new int[0];
+        return tracePath(start, goal);
+    }
+
+    /** Enqueues next if it is passable and unseen, recording cell as its parent. */
+    private int offer(int next, int cell, int stamp, boolean mark, int tail){
+        if(seen[next] == stamp)
+            return tail;
+        int state = maze.getState(next);
+        if(mark ? state != OPEN : state == BLOCKED)
+            return tail;
+        if(mark){
+            maze.setState(next, VISITED);
+        }
+        seen[next] = stamp;
+        trace[next] = cell;
+        queue[tail++] = next;
+        return tail;
+    }
+
+    /**
+     * A* search between two arbitrary points with the Manhattan distance
+     * as heuristic. Like shortestPath it leaves the grid untouched and
+     * treats every cell that is not BLOCKED as passable.
+     * @param startX The x-coordinate of the start point
+     * @param startY The y-coordinate of the start point
+     * @param goalX The x-coordinate of the goal point
+     * @param goalY The y-coordinate of the goal point
+     * @return The cells of a shortest path, or an empty list if there is none
+     * @throws IllegalArgumentException if a point lies outside the grid
+     */
+    public ArrayList<PairInt> aStar(int startX, int startY, int goalX, int goalY){
+        return toPairList(aStarCells(cellOf(startX, startY), cellOf(goalX, goalY)));
+    }
+
+    /**
+     * Cell index version of aStar. The open list is a binary heap of
+     * primitive (f, cell) pairs; stale entries are skipped when popped.
+     * @param start The cell index of the start point
+     * @param goal The cell index of the goal point
+     * @return The cell indices of a shortest path, or an empty array
+     *         if there is none
+     */
+    public int[] aStarCells(int start, int goal){
+        expandedNodes = 0;
+        if(maze.getState(start) == BLOCKED || maze.getState(goal) == BLOCKED)
+            return new int[0];
+        int col = maze.getNCols();
+        int n = col * maze.getNRows();
+        ensureCapacity(n);
+        dist = grow(dist, n);
+        closed = grow(closed, n);
+        if(open == null){
+            open = new IntMinHeap();
+        }
+        int stamp = nextEpoch();
+        int goalX = goal % col;
+        int goalY = goal / col;
+        seen[start] = stamp;
+        dist[start] = 0;
+        trace[start] = start;
+        open.clear();
+        open.push(priority(0, manhattan(start, goalX, goalY, col)), start);
+        while(!open.isEmpty()){
+            int cell = open.topValue();
+            open.pop();
+            if(closed[cell] == stamp)
+                continue;
+            closed[cell] = stamp;
+            ++expandedNodes;
+            if(cell == goal)
+                return tracePath(start, goal);
+            int g = dist[cell] + 1;
+            for(int dir = 0; dir != DIRECTIONS; ++dir){
+                int next = neighbor(cell, dir, col, n);
+                if(next < 0 || closed[next] == stamp || maze.getState(next) == BLOCKED)
+                    continue;
+                if(seen[next] != stamp || g < dist[next]){
+                    seen[next] = stamp;
+                    dist[next] = g;
+                    trace[next] = cell;
+                    open.push(priority(g, manhattan(next, goalX, goalY, col)), next);
+                }
+            }
+        }
+        return new int[0];
+    }
+
+    /**
+     * Open list key of a cell: f = g + h, ties broken by the smaller h
+     * so the search runs deep along equally good paths.
+     */
+    private static long priority(int g, int h){
+        return (long) (g + h) << 32 | h;
+    }
+
+    /** Manhattan distance from a cell to (goalX, goalY). */
+    private static int manhattan(int cell, int goalX, int goalY, int col){
+        return Math.abs(cell % col - goalX) + Math.abs(cell / col - goalY);
+    }
+
+    /**
+     * Bidirectional breadth first search between two arbitrary points.
+     * One level of the smaller frontier is expanded at a time and the
+     * search stops as soon as the two sides meet. Like shortestPath it
+     * leaves the grid untouched and treats every cell that is not
+     * BLOCKED as passable.
+     * @param startX The x-coordinate of the start point
+     * @param startY The y-coordinate of the start point
+     * @param goalX The x-coordinate of the goal point
+     * @param goalY The y-coordinate of the goal point
+     * @return The cells of a shortest path, or an empty list if there is none
+     * @throws IllegalArgumentException if a point lies outside the grid
+     */
+    public ArrayList<PairInt> bidirectionalBfs(int startX, int startY, int goalX, int goalY){
+        return toPairList(bidirectionalBfsCells(cellOf(startX, startY), cellOf(goalX, goalY)));
+    }
+
+    /**
+     * Cell index version of bidirectionalBfs.
+     * @param start The cell index of the start point
+     * @param goal The cell index of the goal point
+     * @return The cell indices of a shortest path, or an empty array
+     *         if there is none
+     */
+    public int[] bidirectionalBfsCells(int start, int goal){
+        expandedNodes = 0;
+        if(maze.getState(start) == BLOCKED || maze.getState(goal) == BLOCKED)
+            return new int[0];
+        if(start == goal)
+            return new int[]{start};
+        int n = maze.getNCols() * maze.getNRows();
+        ensureCapacity(n);
+        dist = grow(dist, n);
+        seenBack = grow(seenBack, n);
+        traceBack = grow(traceBack, n);
+        distBack = grow(distBack, n);
+        queueBack = grow(queueBack, n);
+        int stamp = nextEpoch();
+        seen[start] = stamp;
+        dist[start] = 0;
+        trace[start] = start;
+        seenBack[goal] = stamp;
+        distBack[goal] = 0;
+        traceBack[goal] = goal;
+        queue[0] = start;
+        queueBack[0] = goal;
+        int head = 0;
+        int tail = 1;
+        int headBack = 0;
+        int tailBack = 1;
+        int meet = -1;
+        while(meet < 0 && head != tail && headBack != tailBack){
+            //any meeting found while expanding a whole level is on a shortest path
+            if(tail - head <= tailBack - headBack){
+                int end = tail;
+                tail = expandLevel(queue, head, end, seen, dist, trace, seenBack, stamp);
+                head = end;
+            }else{
+                int end = tailBack;
+                tailBack = expandLevel(queueBack, headBack, end, seenBack, distBack, traceBack, seen, stamp);
+                headBack = end;
+            }
+            meet = meetCell;
+        }
+        if(meet < 0)
+            return new int[0];
+        int[] front = tracePath(start, meet);
+        int[] res = Arrays.copyOf(front, front.length + distBack[meet]);
+        for(int i = front.length, tmp = traceBack[meet]; i != res.length; ++i, tmp = traceBack[tmp]){
+            res[i] = tmp;
+        }
+        return res;
+    }
+
+    /**
+     * Expands one level of one side of bidirectionalBfs and sets meetCell
+     * to the first cell found that the other side has already reached.
+     * @return The new tail of the side's queue
+     */
+    private int expandLevel(int[] q, int head, int end, int[] mySeen, int[] myDist, int[] myTrace,
+                            int[] otherSeen, int stamp){
+        int col = maze.getNCols();
+        int n = col * maze.getNRows();
+        int tail = end;
+        meetCell = -1;
+        while(head != end){
+            int cell = q[head++];
+            ++expandedNodes;
+            for(int dir = 0; dir != DIRECTIONS; ++dir){
+                int next = neighbor(cell, dir, col, n);
+                if(next < 0 || mySeen[next] == stamp || maze.getState(next) == BLOCKED)
+                    continue;
+                mySeen[next] = stamp;
+                myDist[next] = myDist[cell] + 1;
+                myTrace[next] = cell;
+                q[tail++] = next;
+                if(otherSeen[next] == stamp){
+                    meetCell = next;
+                    return tail;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Jump Point Search between two arbitrary points, adapted to the
+     * 4-connected grid. Among equally short paths only those that turn
+     * from vertical to horizontal freely are searched: a horizontal run
+     * only stops where a vertical neighbour opens up next to a blocked
+     * cell behind it, and a vertical run stops wherever a horizontal run
+     * from it would stop. Only those jump points are put on the open
+     * list. Like shortestPath it leaves the grid untouched and treats
+     * every cell that is not BLOCKED as passable.
+     * @param startX The x-coordinate of the start point
+     * @param startY The y-coordinate of the start point
+     * @param goalX The x-coordinate of the goal point
+     * @param goalY The y-coordinate of the goal point
+     * @return The cells of a shortest path, or an empty list if there is none
+     * @throws IllegalArgumentException if a point lies outside the grid
+     */
+    public ArrayList<PairInt> jumpPointSearch(int startX, int startY, int goalX, int goalY){
+        return toPairList(jumpPointSearchCells(cellOf(startX, startY), cellOf(goalX, goalY)));
+    }
+
+    /**
+     * Cell index version of jumpPointSearch. getExpandedNodes counts
+     * the jump points expanded.
+     * @param start The cell index of the start point
+     * @param goal The cell index of the goal point
+     * @return The cell indices of a shortest path, or an empty array
+     *         if there is none
+     */
+    public int[] jumpPointSearchCells(int start, int goal){
+        expandedNodes = 0;
+        if(maze.getState(start) == BLOCKED || maze.getState(goal) == BLOCKED)
+            return new int[0];
+        int col = maze.getNCols();
+        int n = col * maze.getNRows();
+        ensureCapacity(n);
+        dist = grow(dist, n);
+        closed = grow(closed, n);
+        if(rowJumpRight == null || rowJumpRight.length < n){
+            rowJumpRight = new long[n];
+            rowJumpLeft = new long[n];
+        }
+        if(open == null){
+            open = new IntMinHeap();
+        }
+        int stamp = nextEpoch();
+        int goalX = goal % col;
+        int goalY = goal / col;
+        seen[start] = stamp;
+        dist[start] = 0;
+        trace[start] = start;
+        open.clear();
+        open.push(priority(0, manhattan(start, goalX, goalY, col)), start);
+        while(!open.isEmpty()){
+            int cell = open.topValue();
+            open.pop();
+            if(closed[cell] == stamp)
+                continue;
+            closed[cell] = stamp;
+            ++expandedNodes;
+            if(cell == goal)
+                return fillJumps(tracePath(start, goal), col);
+            int x = cell % col;
+            int y = cell / col;
+            int parent = trace[cell];
+            int dx = Integer.signum(x - parent % col);
+            int dy = Integer.signum(y - parent / col);
+            if(parent == cell){
+                jumpTo(cell, 1, 0, goal, stamp);
+                jumpTo(cell, -1, 0, goal, stamp);
+                jumpTo(cell, 0, 1, goal, stamp);
+                jumpTo(cell, 0, -1, goal, stamp);
+            }else if(dx != 0){
+                jumpTo(cell, dx, 0, goal, stamp);
+                if(isPassable(x, y - 1) && !isPassable(x - dx, y - 1)){
+                    jumpTo(cell, 0, -1, goal, stamp);
+                }
+                if(isPassable(x, y + 1) && !isPassable(x - dx, y + 1)){
+                    jumpTo(cell, 0, 1, goal, stamp);
+                }
+            }else{
+                jumpTo(cell, 0, dy, goal, stamp);
+                jumpTo(cell, 1, 0, goal, stamp);
+                jumpTo(cell, -1, 0, goal, stamp);
+            }
+        }
+        return new int[0];
+    }
+
+    /** Jumps from cell in direction (dx, dy) and puts the jump point found on the open list. */
+    private void jumpTo(int cell, int dx, int dy, int goal, int stamp){
+        int col = maze.getNCols();
+        int next = jump(cell % col, cell / col, dx, dy, goal);
+        if(next < 0 || closed[next] == stamp)
+            return;
+        int g = dist[cell] + Math.abs(next % col - cell % col) + Math.abs(next / col - cell / col);
+        if(seen[next] != stamp || g < dist[next]){
+            seen[next] = stamp;
+            dist[next] = g;
+            trace[next] = cell;
+            open.push(priority(g, manhattan(next, goal % col, goal / col, col)), next);
+        }
+    }
+
+    /**
+     * Walks from (x, y) in direction (dx, dy) until a jump point: the goal,
+     * a cell of a horizontal run with a forced vertical neighbour, or a
+     * cell of a vertical run from which a horizontal run finds one.
+     * @return The cell index of the jump point, or -1 if the run hits a wall
+     */
+    private int jump(int x, int y, int dx, int dy, int goal){
+        if(dx != 0)
+            return rowJump(x, y, dx, goal);
+        int col = maze.getNCols();
+        while(true){
+            y += dy;
+            if(!isPassable(x, y))
+                return -1;
+            int cell = y * col + x;
+            if(cell == goal)
+                return cell;
+            if(rowJump(x, y, 1, goal) >= 0 || rowJump(x, y, -1, goal) >= 0)
+                return cell;
+        }
+    }
+
+    /**
+     * Horizontal jump from (x, y) in direction dx. Every cell the run
+     * passes leads to the same jump point, so the answer is cached for
+     * all of them in this epoch; the probes of vertical runs then read
+     * each row once per query instead of once per vertical step.
+     * @return The cell index of the jump point, or -1 if the run hits a wall
+     */
+    private int rowJump(int x, int y, int dx, int goal){
+        int col = maze.getNCols();
+        long[] cache = dx > 0 ? rowJumpRight : rowJumpLeft;
+        int from = x;
+        int result;
+        while(true){
+            long cached = cache[y * col + x];
+            if((int) (cached >>> 32) == epoch){
+                result = (int) cached;
+                break;
+            }
+            x += dx;
+            if(!isPassable(x, y)){
+                result = -1;
+                break;
+            }
+            int cell = y * col + x;
+            if(cell == goal || (isPassable(x, y - 1) && !isPassable(x - dx, y - 1)) ||
+                    (isPassable(x, y + 1) && !isPassable(x - dx, y + 1))){
+                result = cell;
+                break;
+            }
+        }
+        long entry = (long) epoch << 32 | (result & 0xffffffffL);
+        for(int cx = from; cx != x; cx += dx){
+            cache[y * col + cx] = entry;
+        }
+        return result;
+    }
+
+    /** Whether (x, y) lies in the grid and is not BLOCKED. */
+    private boolean isPassable(int x, int y){
+        return x >= 0 && x < maze.getNCols() && y >= 0 && y < maze.getNRows() &&
+                maze.getState(x, y) != BLOCKED;
+    }
+
+    /** Expands a list of jump points in a straight line into every cell between them. */
+    private static int[] fillJumps(int[] jumps, int col){
+        int length = 1;
+        for(int i = 1; i < jumps.length; ++i){
+            length += Math.abs(jumps[i] % col - jumps[i - 1] % col) + Math.abs(jumps[i] / col - jumps[i - 1] / col);
+        }
+        int[] res = new int[length];
+        res[0] = jumps[0];
+        int k = 1;
+        for(int i = 1; i < jumps.length; ++i){
+            int from = jumps[i - 1];
+            int step = jumps[i] / col == from / col ? Integer.signum(jumps[i] - from) : (jumps[i] > from ? col : -col);
+            for(int cell = from + step; cell != jumps[i]; cell += step){
+                res[k++] = cell;
+            }
+            res[k++] = jumps[i];
+        }
+        return res;
+    }
+
+    /**
+     * Validation mode for jumpPointSearch: cross-checks its path lengths
+     * against the breadth first search of shortestPath on random mazes.
+     * @param trials Number of random mazes, each queried once
+     * @param nRows Number of rows of every maze
+     * @param nCols Number of columns of every maze
+     * @param wallRatio Chance of every cell being BLOCKED
+     * @param seed Seed of the random mazes and queries
+     * @return true if every path length matched
+     */
+    public static boolean validateJumpPointSearch(int trials, int nRows, int nCols, double wallRatio, long seed){
+        Random random = new Random(seed);
+        for(int t = 0; t < trials; ++t){
+            PackedGrid grid = new PackedGrid(nRows, nCols);
+            for(int cell = 0; cell < nRows * nCols; ++cell){
+                if(random.nextDouble() < wallRatio){
+                    grid.setState(cell, BLOCKED);
+                }
+            }
+            Maze m = new Maze(grid);
+            int start = random.nextInt(nRows * nCols);
+            int goal = random.nextInt(nRows * nCols);
+            if(m.jumpPointSearchCells(start, goal).length != m.shortestPathCells(start, goal).length){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the number of cells expanded by the last bfs, shortestPath,
+     * aStar or bidirectionalBfs query.
+     * @return expandedNodes */
+    public long getExpandedNodes(){
+        return expandedNodes;
+    }
+
+    /**
+     * Starts a new search epoch. Cells stamped with an older epoch count
+     * as unseen, so the stamp arrays only have to be cleared on wrap-around.
+     * @return The stamp of the new epoch
+     */
+    private int nextEpoch(){
+        if(epoch == Integer.MAX_VALUE){
+            for(int[] stamps : new int[][]{seen, closed, seenBack}){
+                if(stamps != null){
+                    Arrays.fill(stamps, 0);
+                }
+            }
+            for(long[] stamps : new long[][]{rowJumpRight, rowJumpLeft}){
+                if(stamps != null){
+                    Arrays.fill(stamps, 0);
+                }
+            }
+            epoch = 0;
+        }
+        return ++epoch;
+    }
+
+    /** Grows the breadth first search buffers to hold n cells. */
+    private void ensureCapacity(int n){
+        trace = grow(trace, n);
+        queue = grow(queue, n);
+        seen = grow(seen, n);
+    }
+
+    /** Grows the depth first search buffers to hold n cells. */
+    private void ensureStack(int n){
+        stack = grow(stack, n);
+        if(dirs == null || dirs.length < n){
+            dirs = new byte[n];
+        }
+    }
+
+    /** Returns a if it holds n ints, otherwise a new array of n ints. */
+    private static int[] grow(int[] a, int n){
+        return a == null || a.length < n ? new int[n] : a;
+    }
+
+    /** Walks the parent array back from goal to start. */
+    private int[] tracePath(int start, int goal) {
+        int length = 1;
+        for(int tmp = goal; tmp != start; tmp = trace[tmp]){
+            ++length;
+        }
+        int[] res = new int[length];
+        for(int tmp = goal; length > 0; tmp = trace[tmp]){
+            res[--length] = tmp;
+        }
+        return res;
+    }
+
+    /**
+     * Converts cell indices into coordinates.
+     * @param cells Cell indices (y * nCols + x)
+     * @return The matching list of PairInt
+     */
+    public ArrayList<PairInt> toPairList(int[] cells){
+        return toPairList(cells, cells.length);
+    }
+
+    /**
+     * Converts the first length cell indices into coordinates.
+     * @param cells Cell indices (y * nCols + x)
+     * @param length Number of cells to convert
+     * @return The matching list of PairInt
+     */
+    public ArrayList<PairInt> toPairList(int[] cells, int length){
+        int col = maze.getNCols();
+        ArrayList<PairInt> res = new ArrayList<PairInt>(length);
+        for(int i = 0; i < length; ++i){
+            res.add(new PairInt(cells[i] % col, cells[i] / col));
+        }
+        return res;
     }
 
     public boolean isValidPair(PairInt p){
@@ -205,15 +978,15 @@ public class Maze implements GridColors {
 
     /*<exercise chapter="5" section="6" type="programming" number="2">*/
     public void resetTemp() {
-        maze.recolor(TEMPORARY, BACKGROUND);
+        maze.replaceState(VISITED, OPEN);
     }
     /*</exercise>*/
 
     /*<exercise chapter="5" section="6" type="programming" number="3">*/
     public void restore() {
         resetTemp();
-        maze.recolor(PATH, BACKGROUND);
-        maze.recolor(NON_BACKGROUND, BACKGROUND);
+        maze.replaceState(ON_PATH, OPEN);
+        maze.replaceState(BLOCKED, OPEN);
     }
     /*</exercise>*/
 }
@@ -0,0 +1,201 @@
+package Maze;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless self-checks of the maze searches on random PackedGrids,
+ * for machines where MazeTest cannot open a window. Every search is
+ * compared against a simpler one: aStar, bidirectionalBfs and
+ * jumpPointSearch against the breadth first search of shortestPath,
+ * ParallelPathEnumerator against findAllMazePaths and
+ * countMazePaths, MazeComponents against shortestPath, and MazeLoader
+ * by saving and loading every grid.
+ * Run with java Maze.MazeCheck [seed]; a mismatch throws an
+ * IllegalStateException naming the check that failed.
+ */
+public class MazeCheck {
+
+    private MazeCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 570;
+        Random random = new Random(seed);
+        checkShortestPaths(random, 2000);
+        if (!Maze.validateJumpPointSearch(2000, 40, 40, 0.3, seed)) {
+            throw new IllegalStateException("jumpPointSearch differs from shortestPath");
+        }
+        System.out.println("jumpPointSearch matches shortestPath");
+        checkEnumerator(random, 500);
+        checkComponents(random, 300);
+        checkLoader(random, 100);
+    }
+
+    /**
+     * Compares the path lengths of aStar and bidirectionalBfs with
+     * shortestPath and checks that every path found is a walk of
+     * passable neighbouring cells from start to goal
+     * @param random - Source of the mazes and queries
+     * @param trials - Number of random mazes */
+    private static void checkShortestPaths(Random random, int trials) {
+        for (int t = 0; t < trials; ++t) {
+            PackedGrid grid = randomGrid(random, 1 + random.nextInt(40), 1 + random.nextInt(40), 0.35);
+            Maze m = new Maze(grid);
+            int nCells = grid.getNRows() * grid.getNCols();
+            for (int q = 0; q < 10; ++q) {
+                int start = random.nextInt(nCells);
+                int goal = random.nextInt(nCells);
+                int[] expected = m.shortestPathCells(start, goal);
+                checkPath("shortestPath", grid, expected, start, goal);
+                int[] aStar = m.aStarCells(start, goal);
+                checkPath("aStar", grid, aStar, start, goal);
+                int[] bidirectional = m.bidirectionalBfsCells(start, goal);
+                checkPath("bidirectionalBfs", grid, bidirectional, start, goal);
+                if (aStar.length != expected.length || bidirectional.length != expected.length) {
+                    throw new IllegalStateException("Trial " + t + ": lengths " + aStar.length + ", "
+                            + bidirectional.length + " != " + expected.length);
+                }
+            }
+        }
+        System.out.println("aStar and bidirectionalBfs match shortestPath");
+    }
+
+    /**
+     * Compares ParallelPathEnumerator with the sequential enumeration
+     * of Maze on small mazes, for split depths from 1 to 6
+     * @param random - Source of the mazes and queries
+     * @param trials - Number of random mazes */
+    private static void checkEnumerator(Random random, int trials) {
+        for (int t = 0; t < trials; ++t) {
+            int nRows = 1 + random.nextInt(5);
+            int nCols = 1 + random.nextInt(5);
+            PackedGrid grid = randomGrid(random, nRows, nCols, 0.2);
+            Maze m = new Maze(grid);
+            int x = random.nextInt(nCols);
+            int y = random.nextInt(nRows);
+            ParallelPathEnumerator enumerator =
+                    new ParallelPathEnumerator(grid, 1 + random.nextInt(6), ForkJoinPool.commonPool());
+            ArrayList<ArrayList<PairInt>> expected = m.findAllMazePaths(x, y);
+            if (!enumerator.findAllPaths(x, y).toString().equals(expected.toString())) {
+                throw new IllegalStateException("Trial " + t + ": findAllPaths differs from findAllMazePaths");
+            }
+            if (enumerator.countPaths(x, y) != m.countMazePaths(x, y)
+                    || m.countMazePaths(x, y) != expected.size()) {
+                throw new IllegalStateException("Trial " + t + ": countPaths differs from countMazePaths");
+            }
+        }
+        System.out.println("ParallelPathEnumerator matches findAllMazePaths and countMazePaths");
+    }
+
+    /**
+     * Compares MazeComponents.isReachable with shortestPath, on the
+     * grid as built and after single cells are toggled and reported
+     * through cellChanged
+     * @param random - Source of the mazes, toggles and queries
+     * @param trials - Number of random mazes */
+    private static void checkComponents(Random random, int trials) {
+        for (int t = 0; t < trials; ++t) {
+            int nRows = 1 + random.nextInt(20);
+            int nCols = 1 + random.nextInt(20);
+            PackedGrid grid = randomGrid(random, nRows, nCols, 0.4);
+            Maze m = new Maze(grid);
+            MazeComponents components = new MazeComponents(grid);
+            for (int step = 0; step < 20; ++step) {
+                for (int q = 0; q < 5; ++q) {
+                    int start = random.nextInt(nRows * nCols);
+                    int goal = random.nextInt(nRows * nCols);
+                    boolean expected = m.shortestPathCells(start, goal).length > 0;
+                    if (components.isReachable(start % nCols, start / nCols, goal % nCols, goal / nCols) != expected) {
+                        throw new IllegalStateException("Trial " + t + ", step " + step
+                                + ": isReachable(" + start + ", " + goal + ") != " + expected);
+                    }
+                }
+                int x = random.nextInt(nCols);
+                int y = random.nextInt(nRows);
+                grid.setState(x, y, grid.getState(x, y) == GridStates.BLOCKED ? GridStates.OPEN : GridStates.BLOCKED);
+                components.cellChanged(x, y);
+            }
+        }
+        System.out.println("MazeComponents matches shortestPath");
+    }
+
+    /**
+     * Saves random grids as binary and text maze files and checks that
+     * MazeLoader reads every cell back
+     * @param random - Source of the mazes
+     * @param trials - Number of random mazes
+     * @throws IOException if a temporary file cannot be used */
+    private static void checkLoader(Random random, int trials) throws IOException {
+        Path binary = Files.createTempFile("maze", ".bin");
+        Path text = Files.createTempFile("maze", ".txt");
+        try {
+            for (int t = 0; t < trials; ++t) {
+                PackedGrid grid = randomGrid(random, 1 + random.nextInt(70), 1 + random.nextInt(70), 0.3);
+                MazeLoader.saveBinary(grid, binary);
+                checkSame("saveBinary/load " + t, grid, MazeLoader.load(binary));
+                StringBuilder rows = new StringBuilder();
+                for (int y = 0; y < grid.getNRows(); ++y) {
+                    for (int x = 0; x < grid.getNCols(); ++x) {
+                        rows.append(grid.getState(x, y) == GridStates.BLOCKED ? '1' : '0');
+                    }
+                    rows.append(y % 2 == 0 ? "\n" : "\r\n");
+                }
+                Files.write(text, rows.toString().getBytes(StandardCharsets.US_ASCII));
+                checkSame("text load " + t, grid, MazeLoader.load(text));
+            }
+        } finally {
+            Files.delete(binary);
+            Files.delete(text);
+        }
+        System.out.println("MazeLoader reads back the grids it saves");
+    }
+
+    /** A grid whose cells are BLOCKED with the given chance */
+    private static PackedGrid randomGrid(Random random, int nRows, int nCols, double wallRatio) {
+        PackedGrid grid = new PackedGrid(nRows, nCols);
+        for (int cell = 0; cell < nRows * nCols; ++cell) {
+            if (random.nextDouble() < wallRatio) {
+                grid.setState(cell, GridStates.BLOCKED);
+            }
+        }
+        return grid;
+    }
+
+    /** Checks that a path is empty or walks passable neighbours from start to goal */
+    private static void checkPath(String name, MazeGrid grid, int[] path, int start, int goal) {
+        if (path.length == 0) {
+            return;
+        }
+        int nCols = grid.getNCols();
+        if (path[0] != start || path[path.length - 1] != goal) {
+            throw new IllegalStateException(name + ": path does not run from " + start + " to " + goal);
+        }
+        for (int i = 0; i < path.length; ++i) {
+            if (grid.getState(path[i]) == GridStates.BLOCKED) {
+                throw new IllegalStateException(name + ": path crosses BLOCKED cell " + path[i]);
+            }
+            if (i > 0 && Math.abs(path[i] % nCols - path[i - 1] % nCols)
+                    + Math.abs(path[i] / nCols - path[i - 1] / nCols) != 1) {
+                throw new IllegalStateException(name + ": path jumps from " + path[i - 1] + " to " + path[i]);
+            }
+        }
+    }
+
+    /** Checks that two grids have the same size and the same BLOCKED cells */
+    private static void checkSame(String name, MazeGrid expected, MazeGrid actual) {
+        if (expected.getNRows() != actual.getNRows() || expected.getNCols() != actual.getNCols()) {
+            throw new IllegalStateException(name + ": size " + actual.getNRows() + " x " + actual.getNCols());
+        }
+        for (int cell = 0; cell < expected.getNRows() * expected.getNCols(); ++cell) {
+            if ((expected.getState(cell) == GridStates.BLOCKED) != (actual.getState(cell) == GridStates.BLOCKED)) {
+                throw new IllegalStateException(name + ": cell " + cell);
+            }
+        }
+    }
+}
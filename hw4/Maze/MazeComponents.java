@@ -0,0 +1,169 @@
+package Maze;
+
+import java.util.Arrays;
+
+/**
+ * A reachability index for a maze. One pass of union-find over the
+ * grid labels every passable cell with its connected component, so
+ * asking whether a goal is reachable from a start is a comparison of
+ * two labels instead of a search. A cell is passable when it is not
+ * BLOCKED.
+ * The index follows single cell toggles through cellChanged: opening
+ * a cell unions it with its neighbours, blocking a cell relabels the
+ * component it split by flood fill. A TwoDimGrid calls cellChanged
+ * itself when the index is added as its GridListener; changes made
+ * to any other grid have to be reported by the caller.
+ */
+public class MazeComponents implements GridListener {
+
+    // Data Fields
+    /** The grid being indexed */
+    private final MazeGrid grid;
+    /** Number of columns */
+    private final int nCols;
+    /** Number of cells */
+    private final int nCells;
+    /** Union-find parent of every passable cell, -1 for BLOCKED cells */
+    private final int[] parent;
+    /** Epoch in which every cell was last reached by a flood fill */
+    private final int[] filled;
+    /** Scratch stack of the flood fill */
+    private final int[] stack;
+    /** Epoch of the current flood fill */
+    private int epoch;
+
+    // Constructors
+    /**
+     * Construct the index of a grid
+     * @param grid - The grid to be indexed
+     */
+    public MazeComponents(MazeGrid grid) {
+        this.grid = grid;
+        nCols = grid.getNCols();
+        nCells = nCols * grid.getNRows();
+        parent = new int[nCells];
+        filled = new int[nCells];
+        stack = new int[nCells];
+        for (int cell = 0; cell != nCells; ++cell) {
+            if (grid.getState(cell) == GridStates.BLOCKED) {
+                parent[cell] = -1;
+                continue;
+            }
+            parent[cell] = cell;
+            if (cell % nCols > 0 && parent[cell - 1] >= 0) {
+                union(cell, cell - 1);
+            }
+            if (cell >= nCols && parent[cell - nCols] >= 0) {
+                union(cell, cell - nCols);
+            }
+        }
+        // point every cell straight at its root
+        for (int cell = 0; cell != nCells; ++cell) {
+            if (parent[cell] >= 0) {
+                parent[cell] = find(cell);
+            }
+        }
+    }
+
+    // Methods
+    /**
+     * Get the component of a cell
+     * @param x - The column number
+     * @param y - The row number
+     * @return The component label, or -1 if the cell is BLOCKED */
+    public int componentOf(int x, int y) {
+        int cell = index(x, y);
+        return parent[cell] < 0 ? -1 : find(cell);
+    }
+
+    /**
+     * Whether a path leads from one cell to another
+     * @param startX - The x-coordinate of the start point
+     * @param startY - The y-coordinate of the start point
+     * @param goalX - The x-coordinate of the goal point
+     * @param goalY - The y-coordinate of the goal point
+     * @return true if both cells are passable and connected */
+    public boolean isReachable(int startX, int startY, int goalX, int goalY) {
+        int start = componentOf(startX, startY);
+        return start >= 0 && start == componentOf(goalX, goalY);
+    }
+
+    /**
+     * Updates the index after the cell at (x, y) was toggled between
+     * BLOCKED and passable.
+     * @param x - The column number
+     * @param y - The row number */
+    public void cellChanged(int x, int y) {
+        int cell = index(x, y);
+        boolean open = grid.getState(cell) != GridStates.BLOCKED;
+        if (open == (parent[cell] >= 0)) {
+            return;
+        }
+        if (open) {
+            parent[cell] = cell;
+            for (int dir = 0; dir != 4; ++dir) {
+                int next = Maze.neighbor(cell, dir, nCols, nCells);
+                if (next >= 0 && parent[next] >= 0) {
+                    union(cell, next);
+                }
+            }
+        } else {
+            parent[cell] = -1;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(filled, 0);
+                epoch = 0;
+            }
+            int stamp = ++epoch;
+            for (int dir = 0; dir != 4; ++dir) {
+                int next = Maze.neighbor(cell, dir, nCols, nCells);
+                if (next >= 0 && parent[next] >= 0 && filled[next] != stamp) {
+                    relabel(next, stamp);
+                }
+            }
+        }
+    }
+
+    /** Flood fills the passable cells around root and makes root their label. */
+    private void relabel(int root, int stamp) {
+        int top = 0;
+        stack[top++] = root;
+        filled[root] = stamp;
+        while (top != 0) {
+            int cell = stack[--top];
+            parent[cell] = root;
+            for (int dir = 0; dir != 4; ++dir) {
+                int next = Maze.neighbor(cell, dir, nCols, nCells);
+                if (next >= 0 && parent[next] >= 0 && filled[next] != stamp) {
+                    filled[next] = stamp;
+                    stack[top++] = next;
+                }
+            }
+        }
+    }
+
+    /** Root of a passable cell, halving the path on the way. */
+    private int find(int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
+        }
+        return cell;
+    }
+
+    /** Joins the components of two passable cells. */
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+
+    /** Index of the cell at (x, y) */
+    private int index(int x, int y) {
+        if (x < 0 || x >= nCols || y < 0 || y >= nCells / nCols) {
+            throw new IndexOutOfBoundsException("x : " + x + ", y : " + y);
+        }
+        return y * nCols + x;
+    }
+}
@@ -0,0 +1,50 @@
+package Maze;
+
+/**
+ * The grid model a Maze is solved on. Cells are addressed by
+ * column x and row y and hold one of the GridStates.
+ */
+public interface MazeGrid extends GridStates {
+
+    /**
+     * Get the number of columns
+     * @return nCols */
+    int getNCols();
+
+    /**
+     * Get the number of rows
+     * @return nRows */
+    int getNRows();
+
+    /**
+     * Get the state at a given coordinate
+     * @param x - The column number
+     * @param y - The row number
+     * @return The state at the given coordinate */
+    int getState(int x, int y);
+
+    /**
+     * Change the state at a given coordinate
+     * @param x - The column number
+     * @param y - The row number
+     * @param state - The new state of the cell */
+    void setState(int x, int y, int state);
+
+    /**
+     * Get the state of a cell by index
+     * @param cell - The cell index, y * nCols + x
+     * @return The state of the cell */
+    int getState(int cell);
+
+    /**
+     * Change the state of a cell by index
+     * @param cell - The cell index, y * nCols + x
+     * @param state - The new state of the cell */
+    void setState(int cell, int state);
+
+    /**
+     * Change every cell in oldState to newState
+     * @param oldState - The state to be changed
+     * @param newState - The new state */
+    void replaceState(int oldState, int newState);
+}
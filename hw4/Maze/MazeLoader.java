@@ -0,0 +1,174 @@
+package Maze;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Loads and saves maze files straight into a PackedGrid through
+ * memory-mapped NIO buffers, without Strings or a char[][] copy.
+ * Two formats are read:
+ * a text file with one line of '0' (open) and '1' (blocked)
+ * characters per row, as read by MazeTest, and a binary file made of
+ * a header (MAGIC, rows, columns) and a bitset with one bit per cell,
+ * set for blocked cells.
+ */
+public class MazeLoader {
+
+    /** First int of a binary maze file, "MAZE" in ASCII */
+    public static final int MAGIC = 0x4D415A45;
+    /** Size of the binary header in bytes */
+    private static final int HEADER_BYTES = 12;
+    /** Largest part of a text file mapped at once */
+    private static final long WINDOW = 1L << 30;
+
+    private MazeLoader() {
+    }
+
+    /**
+     * Load a maze file in either format
+     * @param path - The file to be read
+     * @return The grid read
+     * @throws IOException if the file cannot be read or is malformed */
+    public static PackedGrid load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4);
+            boolean binary = channel.read(head, 0) == 4 && head.getInt(0) == MAGIC;
+            return binary ? loadBinary(channel) : loadText(channel);
+        }
+    }
+
+    /**
+     * Load a text maze file
+     * @param path - The file to be read
+     * @return The grid read
+     * @throws IOException if the file cannot be read, its rows differ
+     *         in length or it holds characters other than '0' and '1' */
+    public static PackedGrid loadText(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return loadText(channel);
+        }
+    }
+
+    /**
+     * Load a binary maze file
+     * @param path - The file to be read
+     * @return The grid read
+     * @throws IOException if the file cannot be read or is not a binary maze */
+    public static PackedGrid loadBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return loadBinary(channel);
+        }
+    }
+
+    /**
+     * Save a grid as a binary maze file; every BLOCKED cell is written
+     * as a set bit, every other cell as a clear one
+     * @param grid - The grid to be saved
+     * @param path - The file to be written
+     * @throws IOException if the file cannot be written */
+    public static void saveBinary(MazeGrid grid, Path path) throws IOException {
+        int nCells = grid.getNRows() * grid.getNCols();
+        int nWords = (nCells + 63) >>> 6;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_BYTES + 8L * nWords);
+            out.putInt(MAGIC).putInt(grid.getNRows()).putInt(grid.getNCols());
+            for (int w = 0; w != nWords; ++w) {
+                long word = 0;
+                int end = Math.min(64, nCells - (w << 6));
+                for (int i = 0; i != end; ++i) {
+                    if (grid.getState((w << 6) + i) == GridStates.BLOCKED) {
+                        word |= 1L << i;
+                    }
+                }
+                out.putLong(word);
+            }
+            out.force();
+        }
+    }
+
+    /** Reads a text maze in two passes over mapped windows: size, then cells */
+    private static PackedGrid loadText(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int nCols = -1;
+        int nRows = 0;
+        int col = 0;
+        for (long pos = 0; pos < size; pos += WINDOW) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                    Math.min(WINDOW, size - pos));
+            while (in.hasRemaining()) {
+                byte b = in.get();
+                if (b == '\n') {
+                    if (col > 0) {
+                        nCols = checkRow(nCols, col, nRows++);
+                    }
+                    col = 0;
+                } else if (b != '\r') {
+                    ++col;
+                }
+            }
+        }
+        if (col > 0) {
+            nCols = checkRow(nCols, col, nRows++);
+        }
+        if (nRows == 0) {
+            throw new IOException("Empty maze file");
+        }
+        PackedGrid grid = new PackedGrid(nRows, nCols);
+        int cell = 0;
+        for (long pos = 0; pos < size; pos += WINDOW) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, pos,
+                    Math.min(WINDOW, size - pos));
+            while (in.hasRemaining()) {
+                byte b = in.get();
+                if (b == '1') {
+                    grid.setState(cell++, GridStates.BLOCKED);
+                } else if (b == '0') {
+                    ++cell;
+                } else if (b != '\n' && b != '\r') {
+                    throw new IOException("Unexpected character '" + (char) b
+                            + "' in row " + cell / nCols);
+                }
+            }
+        }
+        return grid;
+    }
+
+    /** Checks that a row has as many columns as the first one */
+    private static int checkRow(int nCols, int col, int row) throws IOException {
+        if (nCols >= 0 && col != nCols) {
+            throw new IOException("Row " + row + " has " + col + " columns, expected " + nCols);
+        }
+        return col;
+    }
+
+    /** Reads a binary maze with a single mapping of the whole file */
+    private static PackedGrid loadBinary(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES) {
+            throw new IOException("Not a binary maze file");
+        }
+        MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a binary maze file");
+        }
+        int nRows = in.getInt();
+        int nCols = in.getInt();
+        if (nRows <= 0 || nCols <= 0 || (long) nRows * nCols > Integer.MAX_VALUE) {
+            throw new IOException("Bad maze size " + nRows + " x " + nCols);
+        }
+        long nWords = ((long) nRows * nCols + 63) >>> 6;
+        if (size != HEADER_BYTES + 8 * nWords) {
+            throw new IOException("Expected " + (HEADER_BYTES + 8 * nWords) + " bytes, found " + size);
+        }
+        PackedGrid grid = new PackedGrid(nRows, nCols);
+        grid.setBlocked(in.asLongBuffer());
+        return grid;
+    }
+}
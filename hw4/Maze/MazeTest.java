@@ -4,10 +4,8 @@ import java.awt.BorderLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.JOptionPane;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.List;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JTextArea;
@@ -39,28 +37,10 @@ public class MazeTest extends JFrame implements GridColors {
                 TwoDimGrid aGrid = new TwoDimGrid(nRows, nCols);
                 new MazeTest(aGrid);
             } else {
-                // Create array bitMap from a data file
-                BufferedReader br =
-                        new BufferedReader(new FileReader(args[0]));
-
-                // Read each data line (a string) into
-                // gridArrayList. Each element is a char array.
-                ArrayList<char[]> gridArrayList = new ArrayList<char[]>();
-                String line;
-                while ((line = br.readLine()) != null) {
-                    char[] row = line.toCharArray();
-                    gridArrayList.add(row);
-                }
-
-                // bitMap is a 2-D array based on data in gridArrayList
-                char[][] bitMap =
-                        gridArrayList.toArray(new char[gridArrayList.size()][]);
-                int nRows = bitMap.length;
-                int nCols = bitMap[0].length;
-
-                // create a new TwoDimGrid and recolor it based on bitMap
-                TwoDimGrid aGrid = new TwoDimGrid(nRows, nCols);
-                aGrid.recolor(bitMap, NON_BACKGROUND);
+                // Map the data file (text or binary) straight into
+                // the grid model and show it in a TwoDimGrid
+                PackedGrid model = MazeLoader.load(Paths.get(args[0]));
+                TwoDimGrid aGrid = new TwoDimGrid(model);
                 new MazeTest(aGrid);
             }
         } catch (Exception ex) {
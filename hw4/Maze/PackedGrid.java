@@ -0,0 +1,156 @@
+package Maze;
+
+import java.nio.LongBuffer;
+
+/**
+ * PackedGrid is a headless MazeGrid that stores every cell
+ * in 2 bits of a long array, so it needs no AWT and about
+ * a quarter of a byte per cell.
+ */
+public class PackedGrid implements MazeGrid {
+
+    // Data Fields
+    /** Number of bits used by one cell */
+    private static final int BITS_PER_CELL = 2;
+    /** Number of cells stored in one long */
+    private static final int CELLS_PER_WORD = 64 / BITS_PER_CELL;
+    /** Mask of the low bit of every cell in a long */
+    private static final long LOW_BITS = 0x5555555555555555L;
+    /** Mask of the bits of a single cell */
+    private static final long CELL_MASK = (1L << BITS_PER_CELL) - 1;
+    /** Number of rows */
+    private final int nRows;
+    /** Number of columns */
+    private final int nCols;
+    /** The packed cell states, row by row */
+    private final long[] words;
+
+    // Constructors
+    /**
+     * Construct a PackedGrid of the specified size with all
+     * cells OPEN
+     * @param nRows - Number of rows
+     * @param nCols - Number of columns
+     * @throws IllegalArgumentException if the size is not positive
+     *         or has more than Integer.MAX_VALUE cells
+     */
+    public PackedGrid(int nRows, int nCols) {
+        if (nRows <= 0 || nCols <= 0 || (long) nRows * nCols > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Rows : " + nRows + ", Cols : " + nCols);
+        }
+        this.nRows = nRows;
+        this.nCols = nCols;
+        // in long, since a grid of nearly Integer.MAX_VALUE cells overflows the rounding
+        words = new long[(int) (((long) nRows * nCols + CELLS_PER_WORD - 1) / CELLS_PER_WORD)];
+    }
+
+    // Accessors and Mutators
+    public int getNCols() {
+        return nCols;
+    }
+
+    public int getNRows() {
+        return nRows;
+    }
+
+    public int getState(int x, int y) {
+        return get(index(x, y));
+    }
+
+    public void setState(int x, int y, int state) {
+        set(index(x, y), state);
+    }
+
+    public int getState(int cell) {
+        return get(checkCell(cell));
+    }
+
+    public void setState(int cell, int state) {
+        set(checkCell(cell), state);
+    }
+
+    /**
+     * Change every cell in oldState to newState, 32 cells
+     * at a time.
+     * @param oldState - The state to be changed
+     * @param newState - The new state */
+    public void replaceState(int oldState, int newState) {
+        long oldPattern = LOW_BITS * (oldState & CELL_MASK);
+        long newPattern = LOW_BITS * (newState & CELL_MASK);
+        int cells = nRows * nCols;
+        for (int i = 0; i != words.length; ++i) {
+            long diff = words[i] ^ oldPattern;
+            // low bit of every cell whose two bits equal oldState
+            long match = ~(diff | (diff >>> 1)) & LOW_BITS;
+            int used = cells - i * CELLS_PER_WORD;
+            if (used < CELLS_PER_WORD) {
+                match &= (1L << (used * BITS_PER_CELL)) - 1;
+            }
+            long cellMask = match * CELL_MASK;
+            words[i] = (words[i] & ~cellMask) | (newPattern & cellMask);
+        }
+    }
+
+    /**
+     * Overwrite every cell from a bitset, one bit per cell: BLOCKED
+     * where the bit is set, OPEN where it is clear. Every 64 bits are
+     * spread into two words of 2-bit cells at once.
+     * @param bits - The bitset, cell i in bit i % 64 of long i / 64
+     */
+    void setBlocked(LongBuffer bits) {
+        for (int w = 0; w < words.length; w += 2) {
+            long word = bits.get();
+            words[w] = spread(word);
+            if (w + 1 < words.length) {
+                words[w + 1] = spread(word >>> 32);
+            }
+        }
+        int used = nRows * nCols % CELLS_PER_WORD;
+        if (used != 0) {
+            words[words.length - 1] &= (1L << (used * BITS_PER_CELL)) - 1;
+        }
+    }
+
+    /** Moves bit i of the low 32 bits to bit 2 * i */
+    private static long spread(long bits) {
+        long x = bits & 0xFFFFFFFFL;
+        x = (x | x << 16) & 0x0000FFFF0000FFFFL;
+        x = (x | x << 8) & 0x00FF00FF00FF00FFL;
+        x = (x | x << 4) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | x << 2) & 0x3333333333333333L;
+        x = (x | x << 1) & LOW_BITS;
+        return x;
+    }
+
+    /** Index of the cell at (x, y) */
+    private int index(int x, int y) {
+        if (x < 0 || x >= nCols || y < 0 || y >= nRows) {
+            throw new IndexOutOfBoundsException("x : " + x + ", y : " + y);
+        }
+        return y * nCols + x;
+    }
+
+    /** Checks that a cell index lies in the grid */
+    private int checkCell(int cell) {
+        if (cell < 0 || cell >= nRows * nCols) {
+            throw new IndexOutOfBoundsException("Cell : " + cell);
+        }
+        return cell;
+    }
+
+    /** State of the cell at a given index */
+    private int get(int cell) {
+        int shift = (cell % CELLS_PER_WORD) * BITS_PER_CELL;
+        return (int) (words[cell / CELLS_PER_WORD] >>> shift & CELL_MASK);
+    }
+
+    /** Change the state of the cell at a given index */
+    private void set(int cell, int state) {
+        if (state < OPEN || state > VISITED) {
+            throw new IllegalArgumentException("State : " + state);
+        }
+        int shift = (cell % CELLS_PER_WORD) * BITS_PER_CELL;
+        int w = cell / CELLS_PER_WORD;
+        words[w] = (words[w] & ~(CELL_MASK << shift)) | ((long) state << shift);
+    }
+}
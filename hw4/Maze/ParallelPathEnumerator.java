@@ -0,0 +1,209 @@
+package Maze;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Enumerates the simple paths of a maze on a ForkJoinPool. The
+ * search tree is split into one task per branch while the worker has
+ * few queued tasks left for others to steal, down to a depth derived
+ * from the pool's parallelism; every task owns a copy of the visited
+ * bitset, so the grid is only read once and never recolored. Paths are
+ * merged in the same order as Maze.findAllMazePaths returns them.
+ */
+public class ParallelPathEnumerator {
+
+    // Data Fields
+    /** Queued tasks beyond which a task stops splitting and searches alone */
+    private static final int SURPLUS_TASKS = 3;
+    /** Number of columns */
+    private final int nCols;
+    /** Number of cells */
+    private final int nCells;
+    /** Bit set of the OPEN cells when the enumerator was built */
+    private final long[] open;
+    /** Maximum depth down to which the search tree is split */
+    private final int splitDepth;
+    /** Pool running the tasks */
+    private final ForkJoinPool pool;
+
+    // Constructors
+    /**
+     * Construct an enumerator over a snapshot of a grid
+     * @param grid - The maze; cells in the OPEN state are passable
+     */
+    public ParallelPathEnumerator(MazeGrid grid) {
+        this(grid, defaultSplitDepth(ForkJoinPool.commonPool()), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Construct an enumerator over a snapshot of a grid
+     * @param grid - The maze; cells in the OPEN state are passable
+     * @param splitDepth - Path length up to which a branch may get its own task
+     * @param pool - The pool running the tasks
+     */
+    public ParallelPathEnumerator(MazeGrid grid, int splitDepth, ForkJoinPool pool) {
+        this.nCols = grid.getNCols();
+        this.nCells = nCols * grid.getNRows();
+        this.splitDepth = splitDepth;
+        this.pool = pool;
+        open = new long[(nCells + 63) >>> 6];
+        for (int cell = 0; cell != nCells; ++cell) {
+            if (grid.getState(cell) == GridStates.OPEN) {
+                open[cell >>> 6] |= 1L << cell;
+            }
+        }
+    }
+
+    /**
+     * Counts the simple paths from (x, y) to the bottom right corner
+     * @param x - The x-coordinate of the start point
+     * @param y - The y-coordinate of the start point
+     * @return The number of paths */
+    public long countPaths(int x, int y) {
+        PathTask root = rootTask(x, y, false);
+        return root == null ? 0 : pool.invoke(root);
+    }
+
+    /**
+     * Finds every simple path from (x, y) to the bottom right corner
+     * @param x - The x-coordinate of the start point
+     * @param y - The y-coordinate of the start point
+     * @return The paths, in the order of Maze.findAllMazePaths */
+    public ArrayList<ArrayList<PairInt>> findAllPaths(int x, int y) {
+        ArrayList<ArrayList<PairInt>> result = new ArrayList<>();
+        PathTask root = rootTask(x, y, true);
+        if (root == null) {
+            return result;
+        }
+        pool.invoke(root);
+        for (int[] cells : root.paths) {
+            ArrayList<PairInt> path = new ArrayList<>(cells.length);
+            for (int cell : cells) {
+                path.add(new PairInt(cell % nCols, cell / nCols));
+            }
+            result.add(path);
+        }
+        return result;
+    }
+
+    /** Task searching from (x, y), or null if (x, y) is not open */
+    private PathTask rootTask(int x, int y, boolean collect) {
+        if (x < 0 || x >= nCols || y < 0 || y >= nCells / nCols) {
+            throw new IndexOutOfBoundsException("x : " + x + ", y : " + y);
+        }
+        int start = y * nCols + x;
+        if (!isSet(open, start)) {
+            return null;
+        }
+        long[] visited = new long[open.length];
+        visited[start >>> 6] |= 1L << start;
+        return new PathTask(new int[]{start}, visited, collect);
+    }
+
+    /**
+     * Split depth for a pool: 8 cells plus 4 per doubling of its
+     * parallelism, since corridors make many levels of the search tree
+     * single branches
+     * @param pool - The pool running the tasks
+     * @return The maximum split depth */
+    public static int defaultSplitDepth(ForkJoinPool pool) {
+        return 8 + 4 * (32 - Integer.numberOfLeadingZeros(pool.getParallelism() - 1));
+    }
+
+    private static boolean isSet(long[] bits, int cell) {
+        return (bits[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    // Inner class
+    /** Searches every path that starts with a given prefix */
+    private class PathTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The path so far; its last cell is where the search continues */
+        private final int[] prefix;
+        /** Cells on the prefix, owned by this task */
+        private final long[] visited;
+        /** Paths found, or null when only counting */
+        private final List<int[]> paths;
+
+        PathTask(int[] prefix, long[] visited, boolean collect) {
+            this.prefix = prefix;
+            this.visited = visited;
+            this.paths = collect ? new ArrayList<int[]>() : null;
+        }
+
+        @Override
+        protected Long compute() {
+            int cell = prefix[prefix.length - 1];
+            if (cell == nCells - 1) {
+                if (paths != null) {
+                    paths.add(prefix);
+                }
+                return 1L;
+            }
+            if (prefix.length >= splitDepth || getSurplusQueuedTaskCount() > SURPLUS_TASKS) {
+                return search();
+            }
+            List<PathTask> children = new ArrayList<>(4);
+            for (int dir = 0; dir != 4; ++dir) {
+                int next = Maze.neighbor(cell, dir, nCols, nCells);
+                if (next < 0 || !isSet(open, next) || isSet(visited, next)) {
+                    continue;
+                }
+                int[] path = Arrays.copyOf(prefix, prefix.length + 1);
+                path[prefix.length] = next;
+                long[] bits = visited.clone();
+                bits[next >>> 6] |= 1L << next;
+                children.add(new PathTask(path, bits, paths != null));
+            }
+            long count = 0;
+            for (PathTask child : invokeAll(children)) {
+                count += child.join();
+                if (paths != null) {
+                    paths.addAll(child.paths);
+                }
+            }
+            return count;
+        }
+
+        /** Sequential depth first search below the prefix */
+        private long search() {
+            int[] stack = Arrays.copyOf(prefix, nCells);
+            byte[] dirs = new byte[nCells];
+            int base = prefix.length - 1;
+            int top = base;
+            long count = 0;
+            while (top >= base) {
+                int dir = dirs[top];
+                if (dir == 4) {
+                    visited[stack[top] >>> 6] &= ~(1L << stack[top]);
+                    --top;
+                    continue;
+                }
+                dirs[top] = (byte) (dir + 1);
+                int next = Maze.neighbor(stack[top], dir, nCols, nCells);
+                if (next < 0 || !isSet(open, next) || isSet(visited, next)) {
+                    continue;
+                }
+                if (next == nCells - 1) {
+                    ++count;
+                    if (paths != null) {
+                        int[] path = Arrays.copyOf(stack, top + 2);
+                        path[top + 1] = next;
+                        paths.add(path);
+                    }
+                    continue;
+                }
+                visited[next >>> 6] |= 1L << next;
+                stack[++top] = next;
+                dirs[top] = 0;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package Maze;
+
+/**
+ * A callback that receives the paths of a maze one at a time as
+ * they are found.
+ */
+public interface PathVisitor {
+
+    /**
+     * Called for every path found
+     * @param cells - The cell indices (y * nCols + x) of the path in
+     *        cells[0] to cells[length - 1]; the array is reused for the
+     *        next path, so copy it to keep it
+     * @param length - Number of cells in the path
+     * @return true to keep searching, false to stop */
+    boolean visit(int[] cells, int length);
+}
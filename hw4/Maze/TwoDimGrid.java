@@ -5,6 +5,8 @@ import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.JButton;
 import javax.swing.JPanel;
 
@@ -13,9 +15,11 @@ import javax.swing.JPanel;
  * Each button can be toggled between two colors by
  * clicking it with the mouse, or its color can be
  * changed/queried under program control.
+ * The cell states live in a PackedGrid model; the buttons
+ * are only a Swing view of it.
  * @author Koffman and Wolfgang
  **/
-public class TwoDimGrid extends JPanel implements GridColors {
+public class TwoDimGrid extends JPanel implements GridColors, MazeGrid {
 
     // Data Fields
     /** Prefered button size */
@@ -30,6 +34,13 @@ public class TwoDimGrid extends JPanel implements GridColors {
     private int nRows;
     /** Number of columns */
     private int nCols;
+    /** The model holding the cell states */
+    private PackedGrid model;
+    /** Listeners told when a button is toggled */
+    private List<GridListener> listeners = new ArrayList<GridListener>();
+    /** The color drawn for each cell state */
+    private static final Color[] STATE_COLORS =
+            {BACKGROUND, NON_BACKGROUND, PATH, TEMPORARY};
 
     // Constructors
     /**
@@ -39,8 +50,17 @@ public class TwoDimGrid extends JPanel implements GridColors {
      * @param nCols - Number of columns
      */
     public TwoDimGrid(int nRows, int nCols) {
-        this.nRows = nRows;
-        this.nCols = nCols;
+        this(new PackedGrid(nRows, nCols));
+    }
+
+    /**
+     * Construct a TwoDimGrid viewing an existing model
+     * @param model - The grid model to be shown
+     */
+    public TwoDimGrid(PackedGrid model) {
+        this.model = model;
+        this.nRows = model.getNRows();
+        this.nCols = model.getNCols();
         setPreferredSize(new Dimension(nCols * PREFERED_BUTTON_SIZE,
                 nRows * PREFERED_BUTTON_SIZE));
         setLayout(new GridLayout(nRows, nCols));
@@ -50,8 +70,8 @@ public class TwoDimGrid extends JPanel implements GridColors {
             for (int j = 0; j != nRows; ++j) {
                 theGrid[i][j] = new JButton(i + ", " + j);
                 theGrid[i][j].setOpaque(true);
-                theGrid[i][j].setBackground(BACKGROUND);
-                theGrid[i][j].addActionListener(new ToggleColor(theGrid[i][j]));
+                theGrid[i][j].setBackground(colorOf(model.getState(i, j)));
+                theGrid[i][j].addActionListener(new ToggleColor(i, j));
             }
         }
 
@@ -78,13 +98,62 @@ public class TwoDimGrid extends JPanel implements GridColors {
         return nRows;
     }
 
+    /**
+     * Get the model holding the cell states
+     * @return model */
+    public PackedGrid getModel() {
+        return model;
+    }
+
+    public int getState(int x, int y) {
+        return model.getState(x, y);
+    }
+
+    public void setState(int x, int y, int state) {
+        model.setState(x, y, state);
+        theGrid[x][y].setBackground(colorOf(state));
+        repaint();
+    }
+
+    public int getState(int cell) {
+        return model.getState(cell);
+    }
+
+    public void setState(int cell, int state) {
+        setState(cell % nCols, cell / nCols, state);
+    }
+
+    public void replaceState(int oldState, int newState) {
+        model.replaceState(oldState, newState);
+        for (int i = 0; i != getNCols(); ++i) {
+            for (int j = 0; j != getNRows(); ++j) {
+                theGrid[i][j].setBackground(colorOf(model.getState(i, j)));
+            }
+        }
+        repaint();
+    }
+
+    /**
+     * Add a listener told whenever a button is toggled
+     * @param listener - The listener to be added */
+    public void addGridListener(GridListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener added by addGridListener
+     * @param listener - The listener to be removed */
+    public void removeGridListener(GridListener listener) {
+        listeners.remove(listener);
+    }
+
     /**
      * Get the color at a given coordinate
      * @param x - The column number
      * @param y - The row number
      * @return The color at the given coordinate */
     public Color getColor(int x, int y) {
-        return theGrid[x][y].getBackground();
+        return colorOf(model.getState(x, y));
     }
 
     /**
@@ -93,8 +162,7 @@ public class TwoDimGrid extends JPanel implements GridColors {
      * @param y - The row number
      * @param newColor - The color to set the button to */
     public void recolor(int x, int y, Color newColor) {
-        theGrid[x][y].setBackground(newColor);
-        repaint();
+        setState(x, y, stateOf(newColor));
     }
 
     /**
@@ -108,6 +176,7 @@ public class TwoDimGrid extends JPanel implements GridColors {
         for (int i = 0; i != bitMap.length; ++i) {
             for (int j = 0; j != bitMap[i].length; ++j) {
                 if (bitMap[i][j] == '1') {
+                    model.setState(j, i, stateOf(aColor));
                     theGrid[j][i].setBackground(aColor);
                 }
             }
@@ -121,16 +190,31 @@ public class TwoDimGrid extends JPanel implements GridColors {
      * @param newColor the new color
      */
     public void recolor(Color tempColor, Color newColor) {
-        for (int i = 0; i != getNCols(); ++i) {
-            for (int j = 0; j != getNRows(); ++j) {
-                if (theGrid[i][j].getBackground().equals(tempColor)) {
-                    theGrid[i][j].setBackground(newColor);
-                }
+        replaceState(stateOf(tempColor), stateOf(newColor));
+    }
+    /*</exercise>*/
+
+    /**
+     * Get the color drawn for a cell state
+     * @param state - One of the GridStates
+     * @return The matching GridColors color */
+    public static Color colorOf(int state) {
+        return STATE_COLORS[state];
+    }
+
+    /**
+     * Get the cell state drawn in a color
+     * @param color - One of the GridColors
+     * @return The matching GridStates state
+     * @throws IllegalArgumentException if the color is not a GridColors color */
+    public static int stateOf(Color color) {
+        for (int state = 0; state != STATE_COLORS.length; ++state) {
+            if (STATE_COLORS[state].equals(color)) {
+                return state;
             }
         }
-        repaint();
+        throw new IllegalArgumentException("Color : " + color);
     }
-    /*</exercise>*/
 
     // Inner class
     /** ActionListener class to toggle color when clicked */
@@ -138,16 +222,20 @@ public class TwoDimGrid extends JPanel implements GridColors {
             implements ActionListener {
         // DataField
 
-        /** The button to be responded to */
-        private JButton me;
+        /** The column of the button to be responded to */
+        private int x;
+        /** The row of the button to be responded to */
+        private int y;
 
         // Constructor
         /**
          * Construct ToggleColor object for a given button
-         * @param theButton - The button to be responded to
+         * @param x - The column of the button to be responded to
+         * @param y - The row of the button to be responded to
          */
-        public ToggleColor(JButton theButton) {
-            me = theButton;
+        public ToggleColor(int x, int y) {
+            this.x = x;
+            this.y = y;
         }
 
         // Methods
@@ -156,10 +244,13 @@ public class TwoDimGrid extends JPanel implements GridColors {
          * @param e - Event object is ignored
          */
         public void actionPerformed(ActionEvent e) {
-            if (me.getBackground().equals(BACKGROUND)) {
-                me.setBackground(NON_BACKGROUND);
+            if (getState(x, y) == OPEN) {
+                setState(x, y, BLOCKED);
             } else {
-                me.setBackground(BACKGROUND);
+                setState(x, y, OPEN);
+            }
+            for (GridListener listener : listeners) {
+                listener.cellChanged(x, y);
             }
         }
     }
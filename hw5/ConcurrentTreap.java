@@ -0,0 +1,152 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Thread-safe ordered set with the Treap API, publishing PersistentTreap versions through one
+ * AtomicReference. A writer derives the next version, which copies only the O(log n) nodes on the
+ * search path, and installs it with a CAS, retrying against the newer version if another writer
+ * got there first. find and size read whatever version is published and never wait or retry,
+ * and snapshot() hands out that version itself in O(1).
+ * */
+public class ConcurrentTreap<E extends Comparable<E>> {
+
+    private final AtomicReference<PersistentTreap<E>> version = new AtomicReference<>(new PersistentTreap<E>());
+
+    public boolean add(E key){
+        if(key == null){
+            throw new RuntimeException("data can not be null");
+        }
+        int priority = ThreadLocalRandom.current().nextInt();
+        while(true){
+            PersistentTreap<E> current = version.get();
+            PersistentTreap<E> updated = current.add(key, priority);
+            if(updated == current)
+                return false;
+            if(version.compareAndSet(current, updated))
+                return true;
+        }
+    }
+
+    public boolean delete(E key){
+        while(true){
+            PersistentTreap<E> current = version.get();
+            PersistentTreap<E> updated = current.delete(key);
+            if(updated == current)
+                return false;
+            if(version.compareAndSet(current, updated))
+                return true;
+        }
+    }
+
+    public boolean find(E key){
+        return version.get().find(key);
+    }
+
+    public int size(){
+        return version.get().size();
+    }
+
+    /*
+     * The current contents as an immutable version that later updates do not affect.
+     * */
+    public PersistentTreap<E> snapshot(){
+        return version.get();
+    }
+
+    /*
+     * Stress test: every writer owns a slice of the keys and adds and deletes in it while readers
+     * search the whole range and walk snapshots, then each slice must hold exactly what its
+     * writer left there.
+     * */
+    public static void main(String[] args) throws InterruptedException {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int slice = 20000;
+        ConcurrentTreap<Integer> treap = new ConcurrentTreap<>();
+        boolean[][] present = new boolean[writers][slice];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[writers + readers];
+        for(int t = 0; t < writers; ++t){
+            int base = t * slice;
+            boolean[] mine = present[t];
+            threads[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                await(start);
+                for(int i = 0; i < 10 * slice; ++i){
+                    int key = random.nextInt(slice);
+                    boolean add = random.nextBoolean();
+                    boolean changed = add ? treap.add(base + key) : treap.delete(base + key);
+                    if(changed != (add != mine[key])){
+                        throw new IllegalStateException("Key " + (base + key) + " changed by another thread");
+                    }
+                    mine[key] = add;
+                    if(treap.find(base + key) != add){
+                        throw new IllegalStateException("Key " + (base + key) + " not visible to its writer");
+                    }
+                }
+            });
+        }
+        for(int t = writers; t < threads.length; ++t){
+            threads[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                await(start);
+                for(int i = 0; i < 20 * slice; ++i){
+                    treap.find(random.nextInt(writers * slice));
+                    if(i % slice == 0){
+                        // a snapshot must stay sorted and keep its size while writers go on
+                        PersistentTreap<Integer> snapshot = treap.snapshot();
+                        int count = 0;
+                        int last = Integer.MIN_VALUE;
+                        for(int key : snapshot){
+                            if(key <= last){
+                                throw new IllegalStateException("Snapshot out of order at " + key);
+                            }
+                            last = key;
+                            ++count;
+                        }
+                        if(count != snapshot.size()){
+                            throw new IllegalStateException("Snapshot changed size");
+                        }
+                    }
+                }
+            });
+        }
+        // a failed check only ends its own thread, so keep the first one for main to rethrow
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for(Thread thread : threads){
+            thread.setUncaughtExceptionHandler((failed, e) -> failure.compareAndSet(null, e));
+            thread.start();
+        }
+        start.countDown();
+        for(Thread thread : threads){
+            thread.join();
+        }
+        if(failure.get() != null){
+            throw new IllegalStateException("Worker failed: " + failure.get().getMessage(), failure.get());
+        }
+        int expectedSize = 0;
+        for(int t = 0; t < writers; ++t){
+            for(int key = 0; key < slice; ++key){
+                if(treap.find(t * slice + key) != present[t][key]){
+                    throw new IllegalStateException("Key " + (t * slice + key));
+                }
+                if(present[t][key]){
+                    ++expectedSize;
+                }
+            }
+        }
+        if(treap.size() != expectedSize){
+            throw new IllegalStateException("Size " + treap.size() + " != " + expectedSize);
+        }
+        System.out.println(writers + " writers, " + readers + " readers: final size " + expectedSize + " as expected");
+    }
+
+    private static void await(CountDownLatch start){
+        try{
+            start.await();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+}
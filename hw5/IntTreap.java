@@ -0,0 +1,292 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeSet;
+
+/*
+ * Treap specialised for int keys. Nodes are slots in four parallel arrays (key, priority, left
+ * slot, right slot), so a key costs 16 bytes with no boxing and no compareTo dispatch.
+ * Deleted slots are chained through left into a free list and reused by later adds.
+ * Same add/delete/find algorithms as Treap: add splits below the insertion point by replaying
+ * its recorded search path, delete replaces the node by the join of its subtrees.
+ * */
+public class IntTreap {
+
+    private static final int INITIAL_CAPACITY = 16;
+    // no node
+    private static final int NIL = -1;
+
+    private final Random priorityGenerator;
+    private int[] keys;
+    private int[] priorities;
+    private int[] left;
+    private int[] right;
+    private int root;
+    private int size;
+    // head of the deleted slots, chained through left; never-used slots start at used
+    private int free;
+    // slots below this have been handed out at least once
+    private int used;
+    // slots on the search path of the last add and the turns taken, true for right
+    private int[] trail = new int[32];
+    private boolean[] path = new boolean[32];
+
+    public IntTreap(){
+        this(new Random());
+    }
+
+    public IntTreap(long seed){
+        this(new Random(seed));
+    }
+
+    private IntTreap(Random priorityGenerator){
+        this.priorityGenerator = priorityGenerator;
+        keys = new int[INITIAL_CAPACITY];
+        priorities = new int[INITIAL_CAPACITY];
+        left = new int[INITIAL_CAPACITY];
+        right = new int[INITIAL_CAPACITY];
+        root = NIL;
+        size = 0;
+        free = NIL;
+        used = 0;
+    }
+
+    public boolean add(int key){
+        return add(key, priorityGenerator.nextInt());
+    }
+
+    boolean add(int key, int priority){
+        int depth = 0;
+        // depth of the first node the new one has to go above, -1 while not reached
+        int top = -1;
+        for(int current = root; current != NIL; ++depth){
+            if(keys[current] == key)
+                return false;
+            if(top < 0 && priorities[current] < priority){
+                top = depth;
+            }
+            if(depth == path.length){
+                path = Arrays.copyOf(path, depth * 2);
+                trail = Arrays.copyOf(trail, depth * 2);
+            }
+            trail[depth] = current;
+            path[depth] = keys[current] < key;
+            current = keys[current] < key ? right[current] : left[current];
+        }
+        if(top < 0){
+            top = depth;
+        }
+        int newSlot = allocate();
+        keys[newSlot] = key;
+        priorities[newSlot] = priority;
+        left[newSlot] = NIL;
+        right[newSlot] = NIL;
+        if(top == 0){
+            root = newSlot;
+        }else if(path[top - 1]){
+            right[trail[top - 1]] = newSlot;
+        }else{
+            left[trail[top - 1]] = newSlot;
+        }
+        // last node of the smaller and of the larger part, whose free child is the next hook
+        int lastLeft = NIL;
+        int lastRight = NIL;
+        for(int i = top; i < depth; ++i){
+            int current = trail[i];
+            if(path[i]){
+                if(lastLeft == NIL){
+                    left[newSlot] = current;
+                }else{
+                    right[lastLeft] = current;
+                }
+                lastLeft = current;
+            }else{
+                if(lastRight == NIL){
+                    right[newSlot] = current;
+                }else{
+                    left[lastRight] = current;
+                }
+                lastRight = current;
+            }
+        }
+        if(lastLeft != NIL){
+            right[lastLeft] = NIL;
+        }
+        if(lastRight != NIL){
+            left[lastRight] = NIL;
+        }
+        ++size;
+        return true;
+    }
+
+    public boolean delete(int key){
+        int parent = NIL;
+        int current = root;
+        while(current != NIL && keys[current] != key){
+            parent = current;
+            current = keys[current] < key ? right[current] : left[current];
+        }
+        if(current == NIL)
+            return false;
+        int rest = join(left[current], right[current]);
+        if(parent == NIL){
+            root = rest;
+        }else if(left[parent] == current){
+            left[parent] = rest;
+        }else{
+            right[parent] = rest;
+        }
+        left[current] = free;
+        free = current;
+        --size;
+        return true;
+    }
+
+    public boolean find(int key){
+        int current = root;
+        while(current != NIL){
+            if(keys[current] == key)
+                return true;
+            current = keys[current] < key ? right[current] : left[current];
+        }
+        return false;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /*
+     * Drops the array capacity past the highest slot in use, e.g. once loading is done.
+     * */
+    public void trimToSize(){
+        if(used < keys.length){
+            keys = Arrays.copyOf(keys, used);
+            priorities = Arrays.copyOf(priorities, used);
+            left = Arrays.copyOf(left, used);
+            right = Arrays.copyOf(right, used);
+        }
+    }
+
+    /*
+     * Iterative join of two trees whose keys are all smaller in a than in b: the higher-priority
+     * root goes on top and the join continues in its inner subtree.
+     * */
+    private int join(int a, int b){
+        int result = NIL;
+        int hook = NIL;
+        boolean hookRight = false;
+        while(a != NIL && b != NIL){
+            int top = priorities[a] > priorities[b] ? a : b;
+            if(hook == NIL){
+                result = top;
+            }else if(hookRight){
+                right[hook] = top;
+            }else{
+                left[hook] = top;
+            }
+            hook = top;
+            // a stays on top of the rest through its right side, b through its left side
+            hookRight = top == a;
+            if(top == a){
+                a = right[a];
+            }else{
+                b = left[b];
+            }
+        }
+        int last = a != NIL ? a : b;
+        if(hook == NIL){
+            result = last;
+        }else if(hookRight){
+            right[hook] = last;
+        }else{
+            left[hook] = last;
+        }
+        return result;
+    }
+
+    private int allocate(){
+        if(free != NIL){
+            int reused = free;
+            free = left[reused];
+            return reused;
+        }
+        if(used == keys.length){
+            // grow by half, like ArrayList, to keep the unused tail small
+            int capacity = Math.max(INITIAL_CAPACITY, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            priorities = Arrays.copyOf(priorities, capacity);
+            left = Arrays.copyOf(left, capacity);
+            right = Arrays.copyOf(right, capacity);
+        }
+        return used++;
+    }
+
+    /*
+     * Random adds, finds and deletes against java.util.TreeSet. Deletes are frequent enough that
+     * freed slots are reused, which keeps the highest slot handed out at the largest size reached;
+     * every few thousand steps the arrays are trimmed and order, heap and size are checked.
+     * Finally everything is deleted, trimmed and added again.
+     * */
+    public static void main(String[] args) {
+        Random random = new Random(570);
+        IntTreap treap = new IntTreap(random.nextLong());
+        TreeSet<Integer> expected = new TreeSet<>();
+        int largest = 0;
+        for(int step = 0; step < 200000; ++step){
+            int key = random.nextInt(5000) - 2500;
+            if(random.nextInt(3) == 0){
+                if(treap.delete(key) != expected.remove(key)){
+                    throw new IllegalStateException("Step " + step + ": delete(" + key + ")");
+                }
+            }else if(treap.add(key) != expected.add(key)){
+                throw new IllegalStateException("Step " + step + ": add(" + key + ")");
+            }
+            if(treap.find(key) != expected.contains(key) || treap.size() != expected.size()){
+                throw new IllegalStateException("Step " + step + ": find(" + key + ")");
+            }
+            largest = Math.max(largest, expected.size());
+            if(treap.used > largest){
+                throw new IllegalStateException("Step " + step + ": " + treap.used + " slots for " + largest + " keys");
+            }
+            if(step % 5000 == 0){
+                treap.trimToSize();
+                if(treap.check(treap.root, null, null) != expected.size()){
+                    throw new IllegalStateException("Step " + step + ": size after trimToSize");
+                }
+            }
+        }
+        for(Integer key : new ArrayList<>(expected)){
+            if(!treap.delete(key)){
+                throw new IllegalStateException("delete(" + key + ")");
+            }
+        }
+        treap.trimToSize();
+        for(int key = 0; key < 1000; ++key){
+            if(!treap.add(key)){
+                throw new IllegalStateException("add(" + key + ") after emptying");
+            }
+        }
+        if(treap.size() != 1000 || treap.check(treap.root, null, null) != 1000 || !treap.find(999) || treap.find(1000)){
+            throw new IllegalStateException("refill after emptying");
+        }
+        System.out.println("IntTreap matches TreeSet, largest size " + largest + ", " + treap.used + " slots used");
+    }
+
+    /*
+     * Checks key order within (low, high) and the heap property below slot, returns its size.
+     * */
+    private int check(int slot, Integer low, Integer high){
+        if(slot == NIL)
+            return 0;
+        if((low != null && keys[slot] <= low) || (high != null && keys[slot] >= high)){
+            throw new IllegalStateException("Key " + keys[slot] + " out of order");
+        }
+        for(int child : new int[]{left[slot], right[slot]}){
+            if(child != NIL && priorities[child] > priorities[slot]){
+                throw new IllegalStateException("Heap order broken below " + keys[slot]);
+            }
+        }
+        return check(left[slot], low, keys[slot]) + 1 + check(right[slot], keys[slot], high);
+    }
+}
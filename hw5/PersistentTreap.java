@@ -0,0 +1,186 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Immutable treap: add and delete leave this version untouched and return a new one that copies
+ * only the O(log n) nodes on the search path and shares every other subtree. Holding on to a
+ * version is therefore an O(1) snapshot, and old versions cost memory only while referenced.
+ * An add of a present key or a delete of a missing one returns this same version.
+ * */
+public final class PersistentTreap<E extends Comparable<E>> implements Iterable<E> {
+    private static class Node<E extends Comparable<E>>{
+        final E data;
+        final int priority;
+        final Node<E> left;
+        final Node<E> right;
+        final int size;
+
+        Node(E data, int priority, Node<E> left, Node<E> right) {
+            this.data = data;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        Node<E> withChildren(Node<E> left, Node<E> right){
+            return new Node<>(data, priority, left, right);
+        }
+    }
+
+    private final Node<E> root;
+
+    public PersistentTreap(){
+        this(null);
+    }
+
+    private PersistentTreap(Node<E> root){
+        this.root = root;
+    }
+
+    public PersistentTreap<E> add(E key){
+        return add(key, ThreadLocalRandom.current().nextInt());
+    }
+
+    PersistentTreap<E> add(E key, int priority){
+        if(key == null){
+            throw new RuntimeException("data can not be null");
+        }
+        Node<E> updated = insert(root, key, priority);
+        return updated == root ? this : new PersistentTreap<>(updated);
+    }
+
+    public PersistentTreap<E> delete(E key){
+        Node<E> updated = remove(root, key);
+        return updated == root ? this : new PersistentTreap<>(updated);
+    }
+
+    public boolean find(E key){
+        return contains(root, key);
+    }
+
+    public int size(){
+        return size(root);
+    }
+
+    /*
+     * Ascending walk over this version, unaffected by later updates.
+     * */
+    public Iterator<E> iterator(){
+        ArrayList<Node<E>> stack = new ArrayList<>();
+        for(Node<E> current = root; current != null; current = current.left){
+            stack.add(current);
+        }
+        return new Iterator<E>() {
+            public boolean hasNext(){
+                return !stack.isEmpty();
+            }
+
+            public E next(){
+                if(stack.isEmpty()){
+                    throw new NoSuchElementException();
+                }
+                Node<E> node = stack.remove(stack.size() - 1);
+                for(Node<E> current = node.right; current != null; current = current.left){
+                    stack.add(current);
+                }
+                return node.data;
+            }
+        };
+    }
+
+    private static int size(Node<?> node){
+        return node == null ? 0 : node.size;
+    }
+
+    /*
+     * Returns t itself when key is already present, otherwise a new version sharing every
+     * subtree off the search path.
+     * */
+    private static <E extends Comparable<E>> Node<E> insert(Node<E> t, E key, int priority){
+        if(t == null)
+            return new Node<>(key, priority, null, null);
+        int cmp = t.data.compareTo(key);
+        if(cmp == 0)
+            return t;
+        if(t.priority < priority){
+            if(contains(t, key))
+                return t;
+            Node<E>[] parts = newPair();
+            split(t, key, parts);
+            return new Node<>(key, priority, parts[0], parts[1]);
+        }
+        if(cmp > 0){
+            Node<E> left = insert(t.left, key, priority);
+            return left == t.left ? t : t.withChildren(left, t.right);
+        }
+        Node<E> right = insert(t.right, key, priority);
+        return right == t.right ? t : t.withChildren(t.left, right);
+    }
+
+    /*
+     * Returns t itself when key is absent.
+     * */
+    private static <E extends Comparable<E>> Node<E> remove(Node<E> t, E key){
+        if(t == null)
+            return null;
+        int cmp = t.data.compareTo(key);
+        if(cmp == 0)
+            return join(t.left, t.right);
+        if(cmp > 0){
+            Node<E> left = remove(t.left, key);
+            return left == t.left ? t : t.withChildren(left, t.right);
+        }
+        Node<E> right = remove(t.right, key);
+        return right == t.right ? t : t.withChildren(t.left, right);
+    }
+
+    private static <E extends Comparable<E>> boolean contains(Node<E> t, E key){
+        while(t != null){
+            int cmp = t.data.compareTo(key);
+            if(cmp == 0)
+                return true;
+            t = cmp > 0 ? t.left : t.right;
+        }
+        return false;
+    }
+
+    /*
+     * Copies the search path of key (known to be absent) into parts[0] with the smaller and
+     * parts[1] with the larger keys.
+     * */
+    private static <E extends Comparable<E>> void split(Node<E> t, E key, Node<E>[] parts){
+        if(t == null){
+            parts[0] = null;
+            parts[1] = null;
+            return;
+        }
+        if(t.data.compareTo(key) < 0){
+            split(t.right, key, parts);
+            parts[0] = t.withChildren(t.left, parts[0]);
+        }else{
+            split(t.left, key, parts);
+            parts[1] = t.withChildren(parts[1], t.right);
+        }
+    }
+
+    /*
+     * Concatenates two trees whose keys are all smaller in a than in b, copying the seam.
+     * */
+    private static <E extends Comparable<E>> Node<E> join(Node<E> a, Node<E> b){
+        if(a == null)
+            return b;
+        if(b == null)
+            return a;
+        if(a.priority > b.priority)
+            return a.withChildren(a.left, join(a.right, b));
+        return b.withChildren(join(a, b.left), b.right);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E extends Comparable<E>> Node<E>[] newPair(){
+        return (Node<E>[]) new Node[2];
+    }
+}
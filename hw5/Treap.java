@@ -1,13 +1,23 @@
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
-public class Treap<E extends Comparable<E>> {
+public class Treap<E extends Comparable<E>> implements Iterable<E> {
     private static class Node<E extends Comparable<E>>{
         public E data;
         public int priority;
         public Node<E> left;
         public Node<E> right;
+        // number of nodes in this subtree, kept up to date by every structural change
+        public int size = 1;
 
         public Node(E data, int priority) {
             if(data == null){
@@ -17,28 +27,6 @@ public class Treap<E extends Comparable<E>> {
             this.priority = priority;
         }
 
-        Node<E> rotateLeft(){
-            if(this.right != null){
-                Node<E> right = this.right;
-                Node<E> rightLeft = right.left;
-                right.left = this;
-                right.left.right = rightLeft;
-                return right;
-            }
-            return this;
-        }
-
-        Node<E> rotateRight(){
-            if(this.left != null){
-                Node<E> left = this.left;
-                Node<E> leftRight = left.right;
-                left.right = this;
-                left.right.left = leftRight;
-                return left;
-            }
-            return this;
-        }
-
         public String toString(){
             return "(key=" + data.toString() + ", priority=" + priority + ")";
         }
@@ -46,6 +34,10 @@ public class Treap<E extends Comparable<E>> {
 
     private final Random priorityGenerator;
     private Node<E> root;
+    // nodes on the search path of the last add and the turns taken, true for right;
+    // reused so inserting allocates no stack
+    private Node<E>[] trail = newTrail(32);
+    private boolean[] path = new boolean[32];
 
     public Treap(){
         priorityGenerator = new Random();
@@ -55,194 +47,625 @@ public class Treap<E extends Comparable<E>> {
         priorityGenerator = new Random(seed);
     }
 
+    private Treap(long seed, Node<E> root){
+        this(seed);
+        this.root = root;
+    }
+
+    /*
+     * Results of splitting a tree around a key: the smaller keys, the larger keys and the node
+     * holding the key itself, detached, if there was one.
+     * */
+    private static class Split<E extends Comparable<E>>{
+        Node<E> left;
+        Node<E> right;
+        Node<E> equal;
+    }
+
+    /*
+     * Set operations recurse into both halves of the higher-priority root; while the two trees
+     * together still hold this many nodes the left half is forked so large inputs use every core.
+     * */
+    private static final int PARALLEL_SIZE = 1 << 13;
+    private static final int UNION = 0;
+    private static final int INTERSECTION = 1;
+    private static final int DIFFERENCE = 2;
+
     boolean add(E key){
         return add(key, priorityGenerator.nextInt());
     }
 
+    /*
+     * One pass down the search path, comparing once per level and recording the nodes and turns
+     * in trail and path. The new node belongs above the first node with a lower priority; that
+     * subtree is then split around the key by replaying the recorded turns, hanging the nodes
+     * smaller than the key off newNode.left and the larger ones off newNode.right. A duplicate is
+     * found before anything is changed, and no allocation happens besides the node itself.
+     * Sizes are fixed bottom-up along the split part of the trail and incremented above it.
+     * */
     boolean add(E key, int priority){
+        if(key == null){
+            throw new RuntimeException("data can not be null");
+        }
+        int depth = 0;
+        // depth of the first node the new one has to go above, -1 while not reached
+        int top = -1;
+        for(Node<E> current = root; current != null; ++depth){
+            int cmp = current.data.compareTo(key);
+            if(cmp == 0)
+                return false;
+            if(top < 0 && current.priority < priority){
+                top = depth;
+            }
+            if(depth == path.length){
+                path = Arrays.copyOf(path, depth * 2);
+                trail = Arrays.copyOf(trail, depth * 2);
+            }
+            trail[depth] = current;
+            path[depth] = cmp < 0;
+            current = cmp < 0 ? current.right : current.left;
+        }
+        if(top < 0){
+            top = depth;
+        }
         Node<E> newNode = new Node<>(key, priority);
-        if(root == null){
+        if(top == 0){
             root = newNode;
-            return true;
+        }else if(path[top - 1]){
+            trail[top - 1].right = newNode;
+        }else{
+            trail[top - 1].left = newNode;
         }
-        Deque<Node<E>> stack = new ArrayDeque<>();
-        Node<E> current = root;
-        while(true){
-            if(current.data.compareTo(key) == 0)
-                return false;
-            stack.push(current);
-            if(current.data.compareTo(key) < 0){
-                if(current.right == null){
-                    current.right = newNode;
-                    break;
+        // last node of the smaller and of the larger part, whose free child is the next hook
+        Node<E> lastLeft = null;
+        Node<E> lastRight = null;
+        for(int i = top; i < depth; ++i){
+            Node<E> current = trail[i];
+            if(path[i]){
+                if(lastLeft == null){
+                    newNode.left = current;
+                }else{
+                    lastLeft.right = current;
                 }
-                current = current.right;
+                lastLeft = current;
             }else{
-                if(current.left == null){
-                    current.left = newNode;
-                    break;
+                if(lastRight == null){
+                    newNode.right = current;
+                }else{
+                    lastRight.left = current;
                 }
-                current = current.left;
+                lastRight = current;
             }
         }
-        //assume priority are repeatable
-        reheap(newNode, stack);
+        if(lastLeft != null){
+            lastLeft.right = null;
+        }
+        if(lastRight != null){
+            lastRight.left = null;
+        }
+        for(int i = depth - 1; i >= top; --i){
+            update(trail[i]);
+            trail[i] = null;
+        }
+        update(newNode);
+        for(int i = top - 1; i >= 0; --i){
+            ++trail[i].size;
+            trail[i] = null;
+        }
         return true;
     }
+
     /*
-    * Because of the Random(seed) always generate same priority, do not handle the same priority issue.
-    * */
-    boolean reheap(Node<E> node, Deque<Node<E>> stack){
-        while(!stack.isEmpty() && stack.peek().priority < node.priority){
-            Node<E> parent = stack.pop();
-            if(!isLeftChild(parent, node)){
-                if(!stack.isEmpty()){
-                    boolean isLeftChild = isLeftChild(stack.peek(), parent);
-                    parent = parent.rotateLeft();
-                    if(isLeftChild)
-                        stack.peek().left = parent;
-                    else
-                        stack.peek().right = parent;
-                }else{
-                    parent = parent.rotateLeft();
-                }
+     * One descent to the node, recording the ancestors in trail; the node is then replaced by
+     * the join of its two subtrees, which sets sizes top-down as it goes, and every ancestor
+     * loses one. No rotations and no further comparisons, and nothing recurses, so a degenerate
+     * tree costs its depth but cannot overflow the stack.
+     * */
+    boolean delete(E key){
+        int depth = 0;
+        Node<E> current = root;
+        while(current != null){
+            int cmp = current.data.compareTo(key);
+            if(cmp == 0)
+                break;
+            if(depth == trail.length){
+                path = Arrays.copyOf(path, depth * 2);
+                trail = Arrays.copyOf(trail, depth * 2);
+            }
+            trail[depth++] = current;
+            current = cmp > 0 ? current.left : current.right;
+        }
+        if(current != null){
+            Node<E> rest = join(current.left, current.right);
+            if(depth == 0){
+                root = rest;
+            }else if(trail[depth - 1].left == current){
+                trail[depth - 1].left = rest;
             }else{
-                if(!stack.isEmpty()){
-                    boolean isLeftChild = isLeftChild(stack.peek(), parent);
-                    parent = parent.rotateRight();
-                    if(isLeftChild)
-                        stack.peek().left = parent;
-                    else
-                        stack.peek().right = parent;
-                }else{
-                    parent = parent.rotateRight();
-                }
+                trail[depth - 1].right = rest;
             }
-            node = parent;
+            current.left = null;
+            current.right = null;
+            current.size = 1;
         }
-        if(stack.size() == 0){
-            root = node;
+        for(int i = depth - 1; i >= 0; --i){
+            if(current != null){
+                --trail[i].size;
+            }
+            trail[i] = null;
         }
-        return true;
+        return current != null;
     }
 
-    boolean isLeftChild(Node<E> parent, Node<E> child){
-        if(parent == null || parent.left == null)
-            return false;
-        return parent.left.data.compareTo(child.data) == 0;
+    public int size(){
+        return size(root);
     }
 
-    boolean delete(E key){
+    /*
+     * Number of keys smaller than key, O(log n).
+     * */
+    public int rank(E key){
+        int rank = 0;
         Node<E> current = root;
-        Node<E> parent = null;
         while(current != null){
-            if(current.data.compareTo(key) == 0){
-                break;
+            int cmp = current.data.compareTo(key);
+            if(cmp < 0){
+                rank += size(current.left) + 1;
+                current = current.right;
+            }else{
+                if(cmp == 0)
+                    return rank + size(current.left);
+                current = current.left;
             }
-            if(current.data.compareTo(key) > 0){
-                parent = current;
+        }
+        return rank;
+    }
+
+    /*
+     * The key with rank k, i.e. the (k + 1)-th smallest, O(log n).
+     * */
+    public E select(int k){
+        if(k < 0 || k >= size()){
+            throw new IndexOutOfBoundsException("Index : " + k + ", Size : " + size());
+        }
+        Node<E> current = root;
+        while(true){
+            int leftSize = size(current.left);
+            if(k < leftSize){
                 current = current.left;
-            }else{
-                parent = current;
+            }else if(k > leftSize){
+                k -= leftSize + 1;
                 current = current.right;
+            }else{
+                return current.data;
             }
         }
-        if(current == null)
-            return false;
-        if(current.left == null && current.right == null && parent == null){
-            root = null;
-            return true;
-        }
-        //just copy and paste without reuse codes, needs to rewrite.
-        while(current.left != null || current.right != null){
-            if(current.left == null){
-                if(parent == null){
-                    current = current.rotateLeft();
-                    root = current;
-                    parent = current;
-                }else{
-                    if(isLeftChild(parent, current)){
-                        current = current.rotateLeft();
-                        parent.left = current;
-                        parent = parent.left;
-                    }else{
-                        current = current.rotateLeft();
-                        parent.right = current;
-                        parent = parent.right;
-                    }
+    }
+
+    /*
+     * Number of keys in [low, high), O(log n).
+     * */
+    public int countInRange(E low, E high){
+        if(low.compareTo(high) >= 0)
+            return 0;
+        return rank(high) - rank(low);
+    }
+
+    /*
+     * Iterates the keys in [low, high) in ascending order. Only the left spine still to visit is
+     * kept, so the walk costs O(log n + k) for k keys.
+     * */
+    public Iterator<E> range(E low, E high){
+        return new RangeIterator<>(root, low, high);
+    }
+
+    /*
+     * Ascending in-order walk on an explicit stack.
+     * */
+    public Iterator<E> iterator(){
+        return new RangeIterator<>(root, null, null);
+    }
+
+    /*
+     * Root first, then the left subtree, then the right one, on an explicit stack.
+     * */
+    public Iterator<E> preOrderIterator(){
+        ArrayList<Node<E>> stack = new ArrayList<>();
+        if(root != null){
+            stack.add(root);
+        }
+        return new Iterator<E>() {
+            public boolean hasNext(){
+                return !stack.isEmpty();
+            }
+
+            public E next(){
+                if(stack.isEmpty()){
+                    throw new NoSuchElementException();
                 }
-                current = current.left;
-            }else if(current.right == null){
-                if(parent == null){
-                    current = current.rotateRight();
-                    root = current;
-                    parent = current;
+                Node<E> node = stack.remove(stack.size() - 1);
+                if(node.right != null){
+                    stack.add(node.right);
+                }
+                if(node.left != null){
+                    stack.add(node.left);
+                }
+                return node.data;
+            }
+        };
+    }
+
+    /*
+     * A null bound leaves that side open.
+     * */
+    private static class RangeIterator<E extends Comparable<E>> implements Iterator<E>{
+        private final ArrayList<Node<E>> stack = new ArrayList<>();
+        private final E high;
+
+        RangeIterator(Node<E> root, E low, E high){
+            this.high = high;
+            Node<E> current = root;
+            while(current != null){
+                if(low == null || current.data.compareTo(low) >= 0){
+                    stack.add(current);
+                    current = current.left;
                 }else{
-                    if(isLeftChild(parent, current)){
-                        current = current.rotateRight();
-                        parent.left = current;
-                        parent = parent.left;
-                    }else{
-                        current = current.rotateRight();
-                        parent.right = current;
-                        parent = parent.right;
-                    }
+                    current = current.right;
                 }
-                current = current.right;
-            }else if(current.left.priority > current.right.priority){ //Same logic with current.right is null
-                if(parent == null){
-                    current = current.rotateRight();
-                    root = current;
-                    parent = current;
+            }
+        }
+
+        public boolean hasNext(){
+            return !stack.isEmpty() && (high == null || stack.get(stack.size() - 1).data.compareTo(high) < 0);
+        }
+
+        public E next(){
+            if(!hasNext()){
+                throw new NoSuchElementException();
+            }
+            Node<E> node = stack.remove(stack.size() - 1);
+            for(Node<E> current = node.right; current != null; current = current.left){
+                stack.add(current);
+            }
+            return node.data;
+        }
+    }
+
+    /*
+     * Moves every key greater than or equal to key into a new treap and returns it; this treap
+     * keeps the smaller keys. O(log n).
+     * */
+    public Treap<E> split(E key){
+        Split<E> parts = split(root, key);
+        root = parts.left;
+        return new Treap<>(priorityGenerator.nextLong(), join(parts.equal, parts.right));
+    }
+
+    /*
+     * Appends other, whose keys must all be greater than the keys of this treap, and leaves
+     * other empty. O(log n).
+     * */
+    public void merge(Treap<E> other){
+        if(root != null && other.root != null && max(root).compareTo(min(other.root)) >= 0){
+            throw new IllegalArgumentException("Keys of merged treap must be greater");
+        }
+        root = join(root, other.root);
+        other.root = null;
+    }
+
+    /*
+     * Deletes every key in [low, high) with two splits and a join, O(log n).
+     * */
+    public void deleteRange(E low, E high){
+        Split<E> lower = split(root, low);
+        Split<E> upper = split(join(lower.equal, lower.right), high);
+        root = join(lower.left, join(upper.equal, upper.right));
+    }
+
+    /*
+     * Adds every key of other to this treap and leaves other empty. Like intersection and
+     * difference this runs in O(m log(n / m)) expected for sizes m <= n, reusing the nodes of
+     * both treaps instead of inserting key by key. The union of a treap with itself changes
+     * nothing, as with TreeSet.addAll.
+     * */
+    public void union(Treap<E> other){
+        if(other == this)
+            return;
+        root = ForkJoinPool.commonPool().invoke(new SetTask<>(UNION, root, other.root));
+        other.root = null;
+    }
+
+    /*
+     * Keeps only the keys also in other and leaves other empty; with itself it changes nothing.
+     * */
+    public void intersection(Treap<E> other){
+        if(other == this)
+            return;
+        root = ForkJoinPool.commonPool().invoke(new SetTask<>(INTERSECTION, root, other.root));
+        other.root = null;
+    }
+
+    /*
+     * Removes the keys that are in other and leaves other empty; with itself it clears this.
+     * */
+    public void difference(Treap<E> other){
+        if(other == this){
+            root = null;
+            return;
+        }
+        root = ForkJoinPool.commonPool().invoke(new SetTask<>(DIFFERENCE, root, other.root));
+        other.root = null;
+    }
+
+    /*
+     * Replaces the contents with keys, which must be strictly increasing, in O(n): a Cartesian
+     * tree build that keeps the right spine of the tree built so far on a stack, drawing
+     * priorities from priorityGenerator. Throws IllegalArgumentException on unsorted input.
+     * */
+    public void buildFromSorted(Iterator<? extends E> keys){
+        root = cartesian(keys, priorityGenerator);
+    }
+
+    public void buildFromSorted(E[] keys){
+        buildFromSorted(Arrays.asList(keys).iterator());
+    }
+
+    /*
+     * Same result shape as buildFromSorted, but slices of PARALLEL_SIZE keys are built on
+     * fork/join workers, each with its own generator seeded from priorityGenerator, and joined
+     * pairwise in O(log n) per join.
+     * */
+    public void buildFromSortedParallel(E[] keys){
+        root = ForkJoinPool.commonPool().invoke(new BuildTask<>(keys, 0, keys.length, priorityGenerator.nextLong()));
+    }
+
+    private static class BuildTask<E extends Comparable<E>> extends RecursiveTask<Node<E>>{
+        private static final long serialVersionUID = 1L;
+
+        private final E[] keys;
+        private final int from;
+        private final int to;
+        private final long seed;
+
+        BuildTask(E[] keys, int from, int to, long seed){
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+        }
+
+        protected Node<E> compute(){
+            Random random = new Random(seed);
+            if(to - from <= PARALLEL_SIZE)
+                return cartesian(Arrays.asList(keys).subList(from, to).iterator(), random);
+            int mid = (from + to) >>> 1;
+            if(keys[mid - 1].compareTo(keys[mid]) >= 0){
+                throw new IllegalArgumentException("Keys must be strictly increasing at " + keys[mid]);
+            }
+            BuildTask<E> leftTask = new BuildTask<>(keys, from, mid, random.nextLong());
+            leftTask.fork();
+            Node<E> right = new BuildTask<>(keys, mid, to, random.nextLong()).compute();
+            return Treap.join(leftTask.join(), right);
+        }
+    }
+
+    private static <E extends Comparable<E>> Node<E> cartesian(Iterator<? extends E> keys, Random random){
+        ArrayList<Node<E>> spine = new ArrayList<>();
+        E previous = null;
+        while(keys.hasNext()){
+            E key = keys.next();
+            if(previous != null && previous.compareTo(key) >= 0){
+                throw new IllegalArgumentException("Keys must be strictly increasing at " + key);
+            }
+            previous = key;
+            Node<E> current = new Node<>(key, random.nextInt());
+            Node<E> last = null;
+            while(!spine.isEmpty() && spine.get(spine.size() - 1).priority < current.priority){
+                last = spine.remove(spine.size() - 1);
+                update(last);
+            }
+            current.left = last;
+            if(!spine.isEmpty()){
+                spine.get(spine.size() - 1).right = current;
+            }
+            spine.add(current);
+        }
+        for(int i = spine.size() - 1; i >= 0; --i){
+            update(spine.get(i));
+        }
+        return spine.isEmpty() ? null : spine.get(0);
+    }
+
+    private static class SetTask<E extends Comparable<E>> extends RecursiveTask<Node<E>>{
+        private static final long serialVersionUID = 1L;
+
+        private final int op;
+        private final Node<E> a;
+        private final Node<E> b;
+
+        SetTask(int op, Node<E> a, Node<E> b){
+            this.op = op;
+            this.a = a;
+            this.b = b;
+        }
+
+        protected Node<E> compute(){
+            return combine(op, a, b);
+        }
+    }
+
+    /*
+     * The higher-priority root of a and b stays on top and the other tree is split around its
+     * key; both halves are combined recursively. Difference always keeps a on top because it is
+     * not symmetric.
+     * */
+    private static <E extends Comparable<E>> Node<E> combine(int op, Node<E> a, Node<E> b){
+        if(a == null)
+            return op == UNION ? b : null;
+        if(b == null)
+            return op == INTERSECTION ? null : a;
+        if(op != DIFFERENCE && a.priority < b.priority){
+            Node<E> swap = a;
+            a = b;
+            b = swap;
+        }
+        boolean parallel = a.size + b.size >= PARALLEL_SIZE;
+        Split<E> parts = split(b, a.data);
+        Node<E> left;
+        Node<E> right;
+        if(parallel){
+            SetTask<E> leftTask = new SetTask<>(op, a.left, parts.left);
+            leftTask.fork();
+            right = combine(op, a.right, parts.right);
+            left = leftTask.join();
+        }else{
+            left = combine(op, a.left, parts.left);
+            right = combine(op, a.right, parts.right);
+        }
+        boolean keep = op == UNION || (op == INTERSECTION) == (parts.equal != null);
+        if(!keep)
+            return join(left, right);
+        a.left = left;
+        a.right = right;
+        update(a);
+        return a;
+    }
+
+    /*
+     * Splits t around key, one comparison per level; the node holding key is detached and its
+     * subtrees handed to the two sides. Iterative: each visited node is hung below the last node
+     * of its side and recorded in a local trail, whose sizes are fixed bottom-up at the end. The
+     * trail is local because set operations split from several threads at once.
+     * */
+    private static <E extends Comparable<E>> Split<E> split(Node<E> t, E key){
+        Split<E> parts = new Split<>();
+        Node<E>[] trail = newTrail(32);
+        int depth = 0;
+        // last node of each side, whose inner child receives the rest of that side
+        Node<E> lowHook = null;
+        Node<E> highHook = null;
+        Node<E> lowRest = null;
+        Node<E> highRest = null;
+        while(t != null){
+            if(depth == trail.length){
+                trail = Arrays.copyOf(trail, depth * 2);
+            }
+            trail[depth++] = t;
+            int cmp = t.data.compareTo(key);
+            if(cmp == 0){
+                parts.equal = t;
+                lowRest = t.left;
+                highRest = t.right;
+                t.left = null;
+                t.right = null;
+                break;
+            }else if(cmp < 0){
+                if(lowHook == null){
+                    parts.left = t;
                 }else{
-                    if(isLeftChild(parent, current)){
-                        current = current.rotateRight();
-                        parent.left = current;
-                        parent = parent.left;
-                    }else{
-                        current = current.rotateRight();
-                        parent.right = current;
-                        parent = parent.right;
-                    }
+                    lowHook.right = t;
                 }
-                current = current.right;
-            }else{ // same logic with current.left is null
-                if(parent == null){
-                    current = current.rotateLeft();
-                    root = current;
-                    parent = current;
+                lowHook = t;
+                t = t.right;
+            }else{
+                if(highHook == null){
+                    parts.right = t;
                 }else{
-                    if(isLeftChild(parent, current)){
-                        current = current.rotateLeft();
-                        parent.left = current;
-                        parent = parent.left;
-                    }else{
-                        current = current.rotateLeft();
-                        parent.right = current;
-                        parent = parent.right;
-                    }
+                    highHook.left = t;
                 }
-                current = current.left;
+                highHook = t;
+                t = t.left;
             }
         }
-        if(isLeftChild(parent,current)){
-            parent.left = null;
+        if(lowHook == null){
+            parts.left = lowRest;
         }else{
-            parent.right = null;
+            lowHook.right = lowRest;
         }
-        return true;
+        if(highHook == null){
+            parts.right = highRest;
+        }else{
+            highHook.left = highRest;
+        }
+        for(int i = depth - 1; i >= 0; --i){
+            update(trail[i]);
+        }
+        return parts;
+    }
+
+    /*
+     * Concatenates two trees whose keys are all smaller in a than in b. Iterative: the
+     * higher-priority root goes on top, takes the size of both trees, and the join continues in
+     * its inner subtree.
+     * */
+    private static <E extends Comparable<E>> Node<E> join(Node<E> a, Node<E> b){
+        Node<E> result = null;
+        Node<E> hook = null;
+        boolean hookRight = false;
+        while(a != null && b != null){
+            Node<E> top = a.priority > b.priority ? a : b;
+            top.size = a.size + b.size;
+            if(hook == null){
+                result = top;
+            }else if(hookRight){
+                hook.right = top;
+            }else{
+                hook.left = top;
+            }
+            hook = top;
+            // a stays on top of the rest through its right side, b through its left side
+            hookRight = top == a;
+            if(top == a){
+                a = a.right;
+            }else{
+                b = b.left;
+            }
+        }
+        Node<E> last = a != null ? a : b;
+        if(hook == null){
+            result = last;
+        }else if(hookRight){
+            hook.right = last;
+        }else{
+            hook.left = last;
+        }
+        return result;
+    }
+
+    private static int size(Node<?> node){
+        return node == null ? 0 : node.size;
+    }
+
+    private static void update(Node<?> node){
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E extends Comparable<E>> Node<E>[] newTrail(int length){
+        return (Node<E>[]) new Node[length];
+    }
+
+    private static <E extends Comparable<E>> E min(Node<E> node){
+        while(node.left != null){
+            node = node.left;
+        }
+        return node.data;
+    }
+
+    private static <E extends Comparable<E>> E max(Node<E> node){
+        while(node.right != null){
+            node = node.right;
+        }
+        return node.data;
     }
 
     private boolean find(Node<E> root, E key){
         Node<E> current = root;
         while(current != null){
-            if(current.data.compareTo(key) == 0)
+            int cmp = current.data.compareTo(key);
+            if(cmp == 0)
                 return true;
-            if(current.data.compareTo(key) > 0){
-                current = current.left;
-            }else{
-                current = current.right;
-            }
+            current = cmp > 0 ? current.left : current.right;
         }
         return false;
     }
@@ -256,18 +679,34 @@ public class Treap<E extends Comparable<E>> {
         preOrder(root, sb, 0, "  ");
         return sb.toString();
     }
+    /*
+     * Same output as the recursive walk, one line per node or missing child indented by its
+     * level, but with the pending nodes and their levels on explicit stacks.
+     * */
     public void preOrder(Node<E> root, StringBuilder sb, int level, String pre){
-        if(root == null){
-            for(int i = 0; i < level; ++i)
+        ArrayList<Node<E>> nodes = new ArrayList<>();
+        int[] levels = new int[16];
+        nodes.add(root);
+        levels[0] = level;
+        while(!nodes.isEmpty()){
+            int top = nodes.size() - 1;
+            Node<E> node = nodes.remove(top);
+            int depth = levels[top];
+            for(int i = 0; i < depth; ++i)
                 sb.append(pre);
-            sb.append("null" + "\n");
-            return;
+            if(node == null){
+                sb.append("null" + "\n");
+                continue;
+            }
+            sb.append(node.toString()).append("\n");
+            if(top + 2 > levels.length){
+                levels = Arrays.copyOf(levels, levels.length * 2);
+            }
+            nodes.add(node.right);
+            levels[top] = depth + 1;
+            nodes.add(node.left);
+            levels[top + 1] = depth + 1;
         }
-        for(int i = 0; i < level; ++i)
-            sb.append(pre);
-        sb.append(root.toString()).append("\n");
-        preOrder(root.left, sb, level + 1, pre);
-        preOrder(root.right, sb, level + 1, pre);
     }
 
     public static void main(String[] args) {
@@ -281,5 +720,256 @@ public class Treap<E extends Comparable<E>> {
 //        testTree.add(7,26);
         testTree.delete(5);
         System.out.println(testTree.toString());
+        randomTest(new Random(570));
+        setTest(new Random(570));
+        buildTest(new Random(570));
+        degenerateTest(100000);
+    }
+
+    /*
+     * Sorted priorities make a path of n nodes; traversal and delete must still work on it.
+     * */
+    private static void degenerateTest(int n) {
+        Treap<Integer> treap = new Treap<>();
+        for(int i = 0; i < n; ++i){
+            treap.add(i, i);
+        }
+        // the printout grows with the square of the depth, so print a shorter path on a thread
+        // whose stack is far too small for a recursive walk
+        Treap<Integer> shorter = new Treap<>();
+        for(int i = 0; i < 5000; ++i){
+            shorter.add(i, i);
+        }
+        String[] printed = new String[1];
+        Thread printer = new Thread(null, () -> printed[0] = shorter.toString(), "printer", 1 << 16);
+        printer.start();
+        try{
+            printer.join();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        if(printed[0] == null || printed[0].split("\n").length != 2 * 5000 + 1){
+            throw new IllegalStateException("toString of a path failed");
+        }
+        // split and range delete near both ends of the path, the far end n levels down; merging
+        // and re-adding restore the same path
+        for(int key : new int[]{n - 5, 5}){
+            Treap<Integer> upper = treap.split(key);
+            if(treap.size() != key || upper.size() != n - key){
+                throw new IllegalStateException("split(" + key + ")");
+            }
+            treap.merge(upper);
+        }
+        for(int low : new int[]{n - 10, 5}){
+            treap.deleteRange(low, low + 5);
+            if(treap.size() != n - 5 || treap.find(low) || treap.find(low + 4) || !treap.find(low + 5)){
+                throw new IllegalStateException("deleteRange(" + low + ", " + (low + 5) + ")");
+            }
+            for(int key = low; key < low + 5; ++key){
+                treap.add(key, key);
+            }
+        }
+        int expected = 0;
+        for(int key : treap){
+            if(key != expected++){
+                throw new IllegalStateException("in-order at " + key);
+            }
+        }
+        Iterator<Integer> preOrder = treap.preOrderIterator();
+        for(int key = n - 1; key >= 0; --key){
+            if(preOrder.next() != key){
+                throw new IllegalStateException("pre-order at " + key);
+            }
+        }
+        // the deepest key first, then from the top down
+        if(!treap.delete(0) || treap.delete(0)){
+            throw new IllegalStateException("delete(0)");
+        }
+        for(int key = n - 1; key > 0; --key){
+            if(!treap.delete(key)){
+                throw new IllegalStateException("delete(" + key + ")");
+            }
+            if(treap.size() != key - 1){
+                throw new IllegalStateException("size after delete(" + key + ")");
+            }
+        }
+        System.out.println("Treap traverses and deletes a path of " + n + " nodes");
+    }
+
+    /*
+     * Both bulk loads against java.util.TreeSet, plus the rejection of unsorted input.
+     * */
+    private static void buildTest(Random random) {
+        for(int round = 0; round < 20; ++round){
+            TreeSet<Integer> expected = new TreeSet<>();
+            for(int i = random.nextInt(100000); i > 0; --i){
+                expected.add(random.nextInt());
+            }
+            Integer[] keys = expected.toArray(new Integer[0]);
+            Treap<Integer> treap = new Treap<>(random.nextLong());
+            treap.add(7);
+            treap.buildFromSorted(expected.iterator());
+            compare(treap, expected, "buildFromSorted");
+            treap.buildFromSortedParallel(keys);
+            compare(treap, expected, "buildFromSortedParallel");
+            if(keys.length > 1){
+                Integer swap = keys[0];
+                keys[0] = keys[keys.length - 1];
+                keys[keys.length - 1] = swap;
+                try{
+                    treap.buildFromSorted(keys);
+                    throw new IllegalStateException("unsorted input accepted");
+                }catch(IllegalArgumentException expectedFailure){
+                }
+            }
+        }
+        System.out.println("Treap bulk loads match TreeSet");
+    }
+
+    /*
+     * Random adds and deletes checked against java.util.TreeSet, with the heap and search tree
+     * order verified after every batch.
+     * */
+    private static void randomTest(Random random) {
+        Treap<Integer> treap = new Treap<>(random.nextLong());
+        TreeSet<Integer> expected = new TreeSet<>();
+        for(int step = 0; step < 200000; ++step){
+            int key = random.nextInt(5000);
+            if(random.nextInt(3) == 0){
+                if(treap.delete(key) != expected.remove(key)){
+                    throw new IllegalStateException("Step " + step + ": delete(" + key + ")");
+                }
+            }else if(treap.add(key) != expected.add(key)){
+                throw new IllegalStateException("Step " + step + ": add(" + key + ")");
+            }
+            if(treap.find(key) != expected.contains(key)){
+                throw new IllegalStateException("Step " + step + ": find(" + key + ")");
+            }
+            if(step % 1000 == 0 && check(treap.root, null, null) != expected.size()){
+                throw new IllegalStateException("Step " + step + ": size");
+            }
+            if(step % 100 == 0){
+                List<Integer> sorted = new ArrayList<>(expected);
+                int rank = Collections.binarySearch(sorted, key);
+                if(treap.rank(key) != (rank < 0 ? -rank - 1 : rank)){
+                    throw new IllegalStateException("Step " + step + ": rank(" + key + ")");
+                }
+                for(int k = 0; k < sorted.size(); k += 1 + random.nextInt(50)){
+                    if(!treap.select(k).equals(sorted.get(k))){
+                        throw new IllegalStateException("Step " + step + ": select(" + k + ")");
+                    }
+                }
+                int high = key + random.nextInt(500);
+                if(treap.countInRange(key, high) != expected.subSet(key, high).size()){
+                    throw new IllegalStateException("Step " + step + ": countInRange(" + key + ", " + high + ")");
+                }
+                List<Integer> keys = new ArrayList<>();
+                treap.range(key, high).forEachRemaining(keys::add);
+                if(!keys.equals(new ArrayList<>(expected.subSet(key, high)))){
+                    throw new IllegalStateException("Step " + step + ": range(" + key + ", " + high + ")");
+                }
+            }
+        }
+        System.out.println("Treap matches TreeSet, final size " + expected.size());
+    }
+
+    /*
+     * Split, merge, range delete and the set operations against java.util.TreeSet, on inputs
+     * large enough to fork.
+     * */
+    private static void setTest(Random random) {
+        for(int round = 0; round < 60; ++round){
+            int range = 1 + random.nextInt(200000);
+            Treap<Integer> a = new Treap<>(random.nextLong());
+            Treap<Integer> b = new Treap<>(random.nextLong());
+            TreeSet<Integer> expectedA = new TreeSet<>();
+            TreeSet<Integer> expectedB = new TreeSet<>();
+            for(int i = random.nextInt(50000); i > 0; --i){
+                int key = random.nextInt(range);
+                a.add(key);
+                expectedA.add(key);
+            }
+            for(int i = random.nextInt(50000); i > 0; --i){
+                int key = random.nextInt(range);
+                b.add(key);
+                expectedB.add(key);
+            }
+            int op = round % 5;
+            if(op == 0){
+                a.union(b);
+                expectedA.addAll(expectedB);
+            }else if(op == 1){
+                a.intersection(b);
+                expectedA.retainAll(expectedB);
+            }else if(op == 2){
+                a.difference(b);
+                expectedA.removeAll(expectedB);
+            }else if(op == 3){
+                int key = random.nextInt(range);
+                Treap<Integer> upper = a.split(key);
+                compare(upper, expectedA.tailSet(key, true), "split upper");
+                compare(a, expectedA.headSet(key, false), "split lower");
+                a.merge(upper);
+            }else{
+                int low = random.nextInt(range);
+                int high = low + random.nextInt(range - low + 1);
+                a.deleteRange(low, high);
+                expectedA.subSet(low, high).clear();
+            }
+            compare(a, expectedA, "operation " + op);
+            if(op < 3 && b.root != null){
+                throw new IllegalStateException("operation " + op + " left the argument non-empty");
+            }
+            // the treap itself as argument, which the operations walk and split
+            if(op == 0){
+                a.union(a);
+            }else if(op == 1){
+                a.intersection(a);
+            }else if(op == 2){
+                a.difference(a);
+                expectedA.clear();
+            }
+            compare(a, expectedA, "operation " + op + " with itself");
+        }
+        System.out.println("Treap split, merge and set operations match TreeSet");
+    }
+
+    private static void compare(Treap<Integer> treap, SortedSet<Integer> expected, String what) {
+        if(check(treap.root, null, null) != expected.size()){
+            throw new IllegalStateException(what + ": size");
+        }
+        List<Integer> keys = new ArrayList<>();
+        inOrder(treap.root, keys);
+        if(!keys.equals(new ArrayList<>(expected))){
+            throw new IllegalStateException(what + ": keys");
+        }
+    }
+
+    private static <E extends Comparable<E>> void inOrder(Node<E> node, List<E> keys) {
+        if(node == null)
+            return;
+        inOrder(node.left, keys);
+        keys.add(node.data);
+        inOrder(node.right, keys);
+    }
+
+    /*
+     * Verifies order and heap property below node, returning the number of nodes.
+     * */
+    private static <E extends Comparable<E>> int check(Node<E> node, E low, E high) {
+        if(node == null)
+            return 0;
+        if(low != null && node.data.compareTo(low) <= 0 || high != null && node.data.compareTo(high) >= 0){
+            throw new IllegalStateException("Order broken at " + node);
+        }
+        if(node.left != null && node.left.priority > node.priority
+                || node.right != null && node.right.priority > node.priority){
+            throw new IllegalStateException("Heap broken at " + node);
+        }
+        int size = check(node.left, low, node.data) + check(node.right, node.data, high) + 1;
+        if(node.size != size){
+            throw new IllegalStateException("Size " + node.size + " != " + size + " at " + node);
+        }
+        return size;
     }
 }
@@ -0,0 +1,279 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/*
+ * Treap against java.util.TreeMap on Integer and String keys, the bulk builders against
+ * one-by-one adds, the primitive treaps' footprint, PersistentTreap version sharing and
+ * shared-set throughput. Timing follows hw3's IDLListBenchmark (best of ROUNDS); the helpers
+ * are kept here because hw5 compiles on its own. Run as java -Xms2g -Xmx2g TreapBenchmark [n].
+ * */
+public class TreapBenchmark {
+
+    private static final int ROUNDS = 5;
+    // keys come from SEED and priorities from SEED + 1, so the two never mirror each other
+    private static final long SEED = 570;
+
+    // keeps the structure being measured reachable
+    private static Object sink;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        Random random = new Random(SEED);
+        Integer[] ints = new Integer[n];
+        String[] strings = new String[n];
+        for(int i = 0; i < n; ++i){
+            ints[i] = random.nextInt();
+            strings[i] = "key-" + Integer.toHexString(ints[i]);
+        }
+        System.out.println("Random keys, n = " + n);
+        compare("Integer", ints);
+        compare("String", strings);
+
+        System.out.println("Loading " + n + " sorted Integer keys");
+        Integer[] sorted = ints.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for(int i = 0; i < n; ++i){
+            if(i == 0 || !sorted[i].equals(sorted[i - 1])){
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        Integer[] keys = Arrays.copyOf(sorted, distinct);
+        report("Treap add one by one", distinct, () -> {
+            Treap<Integer> treap = new Treap<>(SEED + 1);
+            for(Integer key : keys) treap.add(key);
+        });
+        report("Treap buildFromSorted", distinct, () -> {
+            Treap<Integer> treap = new Treap<>(SEED + 1);
+            treap.buildFromSorted(keys);
+        });
+        report("Treap buildFromSortedParallel", distinct, () -> {
+            Treap<Integer> treap = new Treap<>(SEED + 1);
+            treap.buildFromSortedParallel(keys);
+        });
+
+        System.out.println("Primitive keys, n = " + n);
+        int[] primitive = new int[n];
+        for(int i = 0; i < n; ++i){
+            primitive[i] = ints[i];
+        }
+        report("Treap<Integer> add/find/delete", 3 * n, () -> {
+            Treap<Integer> treap = new Treap<>(SEED + 1);
+            for(Integer key : ints) treap.add(key);
+            for(Integer key : ints) treap.find(key);
+            for(Integer key : ints) treap.delete(key);
+        });
+        report("IntTreap add/find/delete", 3 * n, () -> {
+            IntTreap treap = new IntTreap(SEED + 1);
+            for(int key : primitive) treap.add(key);
+            for(int key : primitive) treap.find(key);
+            for(int key : primitive) treap.delete(key);
+        });
+        report("LongTreap add/find/delete", 3 * n, () -> {
+            LongTreap treap = new LongTreap(SEED + 1);
+            for(int key : primitive) treap.add(key);
+            for(int key : primitive) treap.find(key);
+            for(int key : primitive) treap.delete(key);
+        });
+        footprint("Treap<Integer>", n, "key", () -> {
+            Treap<Integer> treap = new Treap<>(SEED + 1);
+            for(int key : primitive) treap.add(key);
+            return treap;
+        });
+        footprint("IntTreap", n, "key", () -> {
+            IntTreap treap = new IntTreap(SEED + 1);
+            for(int key : primitive) treap.add(key);
+            return treap;
+        });
+        footprint("IntTreap after trimToSize", n, "key", () -> {
+            IntTreap treap = new IntTreap(SEED + 1);
+            for(int key : primitive) treap.add(key);
+            treap.trimToSize();
+            return treap;
+        });
+        footprint("LongTreap", n, "key", () -> {
+            LongTreap treap = new LongTreap(SEED + 1);
+            for(int key : primitive) treap.add(key);
+            return treap;
+        });
+        footprint("LongTreap after trimToSize", n, "key", () -> {
+            LongTreap treap = new LongTreap(SEED + 1);
+            for(int key : primitive) treap.add(key);
+            treap.trimToSize();
+            return treap;
+        });
+
+        System.out.println("PersistentTreap versions over " + n + " Integer keys");
+        PersistentTreap<Integer> base = new PersistentTreap<>();
+        for(Integer key : ints){
+            base = base.add(key);
+        }
+        PersistentTreap<Integer> start = base;
+        int updates = Math.min(n, 100000);
+        report("PersistentTreap add", updates, () -> {
+            PersistentTreap<Integer> version = start;
+            for(int i = 0; i < updates; ++i) version = version.add(i);
+            sink = version;
+        });
+        report("ConcurrentTreap snapshot", updates, () -> {
+            ConcurrentTreap<Integer> shared = new ConcurrentTreap<>();
+            for(int i = 0; i < updates; ++i) sink = shared.snapshot();
+        });
+        footprint("every version kept", updates, "update", () -> {
+            Object[] versions = new Object[updates];
+            PersistentTreap<Integer> version = start;
+            for(int i = 0; i < updates; ++i){
+                version = version.add(i);
+                versions[i] = version;
+            }
+            return versions;
+        });
+        footprint("only the last version kept", updates, "update", () -> {
+            PersistentTreap<Integer> version = start;
+            for(int i = 0; i < updates; ++i) version = version.add(i);
+            return version;
+        });
+
+        System.out.println("Shared set throughput, 90% find / 5% add / 5% delete over " + n + " keys");
+        for(int threads = 1; threads <= 32; threads *= 2){
+            ConcurrentTreap<Integer> concurrent = new ConcurrentTreap<>();
+            Treap<Integer> locked = new Treap<>(SEED + 1);
+            ConcurrentSkipListSet<Integer> skipList = new ConcurrentSkipListSet<>();
+            for(int i = 0; i < n; i += 2){
+                concurrent.add(i);
+                locked.add(i);
+                skipList.add(i);
+            }
+            throughput("ConcurrentTreap", threads, n, new SetOps() {
+                public void find(Integer key){ concurrent.find(key); }
+                public void add(Integer key){ concurrent.add(key); }
+                public void delete(Integer key){ concurrent.delete(key); }
+            });
+            throughput("synchronized Treap", threads, n, new SetOps() {
+                public void find(Integer key){ synchronized(locked){ locked.find(key); } }
+                public void add(Integer key){ synchronized(locked){ locked.add(key); } }
+                public void delete(Integer key){ synchronized(locked){ locked.delete(key); } }
+            });
+            throughput("ConcurrentSkipListSet", threads, n, new SetOps() {
+                public void find(Integer key){ skipList.contains(key); }
+                public void add(Integer key){ skipList.add(key); }
+                public void delete(Integer key){ skipList.remove(key); }
+            });
+        }
+    }
+
+    /*
+     * Prints the heap a supplier's result retains beyond what is already reachable, per unit.
+     * */
+    static void footprint(String name, int count, String unit, Supplier<Object> build) {
+        long before = usedHeap();
+        sink = build.get();
+        long after = usedHeap();
+        sink = null;
+        System.out.printf("  %-36s %8.2f bytes/%s%n", name, (double) (after - before) / count, unit);
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; ++i){
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    interface SetOps {
+        void find(Integer key);
+        void add(Integer key);
+        void delete(Integer key);
+    }
+
+    /*
+     * Splits n operations over the given number of threads and prints the best rate over
+     * ROUNDS runs. Adds and deletes are equally likely, so the set stays about half full.
+     * */
+    static void throughput(String name, int threads, int n, SetOps ops) {
+        int perThread = Math.max(1, n / threads);
+        long best = Long.MAX_VALUE;
+        for(int round = 0; round < ROUNDS; ++round){
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            for(int t = 0; t < threads; ++t){
+                workers[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    try{
+                        start.await();
+                    }catch(InterruptedException e){
+                        return;
+                    }
+                    for(int i = 0; i < perThread; ++i){
+                        Integer key = random.nextInt(n);
+                        int op = random.nextInt(20);
+                        if(op == 0){
+                            ops.add(key);
+                        }else if(op == 1){
+                            ops.delete(key);
+                        }else{
+                            ops.find(key);
+                        }
+                    }
+                });
+                workers[t].start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for(Thread worker : workers){
+                try{
+                    worker.join();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            best = Math.min(best, System.nanoTime() - begin);
+        }
+        double opsPerSecond = (double) perThread * threads / (best / 1e9);
+        System.out.printf("  %-26s %2d threads %10.2f Mops/s%n", name, threads, opsPerSecond / 1e6);
+    }
+
+    private static <E extends Comparable<E>> void compare(String name, E[] keys) {
+        int n = keys.length;
+        report("Treap<" + name + "> add", n, () -> {
+            Treap<E> treap = new Treap<>(SEED + 1);
+            for(E key : keys) treap.add(key);
+        });
+        report("TreeMap<" + name + "> put", n, () -> {
+            TreeMap<E, Boolean> map = new TreeMap<>();
+            for(E key : keys) map.put(key, Boolean.TRUE);
+        });
+        Treap<E> treap = new Treap<>(SEED + 1);
+        TreeMap<E, Boolean> map = new TreeMap<>();
+        for(E key : keys){
+            treap.add(key);
+            map.put(key, Boolean.TRUE);
+        }
+        report("Treap<" + name + "> find", n, () -> {
+            for(E key : keys) treap.find(key);
+        });
+        report("TreeMap<" + name + "> containsKey", n, () -> {
+            for(E key : keys) map.containsKey(key);
+        });
+    }
+
+    /*
+     * Runs a case ROUNDS times and prints the best rate.
+     * */
+    static void report(String name, int n, Runnable body) {
+        long best = Long.MAX_VALUE;
+        for(int round = 0; round < ROUNDS; ++round){
+            long start = System.nanoTime();
+            body.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("  %-36s %8.2f Mops/s%n", name, n / (best / 1e3));
+    }
+}